@@ -0,0 +1,81 @@
+package heap;
+
+import java.util.concurrent.TimeUnit;
+import java.util.stream.StreamSupport;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** AList.append and get, and scans by loop, iterator and stream. Each
+ * benchmark processes all size elements, so scores are microseconds per
+ * batch of size operations. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AListBenchmark {
+
+    @Param({"1000", "1000000"})
+    public int size;
+
+    /** order of the indexes passed to get */
+    @Param({"sequential", "random"})
+    public String pattern;
+
+    Integer[] values;
+    int[] order;
+    AList<Integer> full;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        values = BenchmarkData.priorities("random", size, 1);
+        order = BenchmarkData.order(pattern, size, 2);
+        full = append();
+    }
+
+    /** append from the default capacity of 8 */
+    @Benchmark
+    public AList<Integer> append() {
+        AList<Integer> l = new AList<Integer>();
+        for (int i = 0; i < size; i++) l.append(values[i]);
+        return l;
+    }
+
+    @Benchmark
+    public long get() {
+        long sum = 0;
+        for (int i : order) sum += full.get(i);
+        return sum;
+    }
+
+    @Benchmark
+    public long iterate() {
+        long sum = 0;
+        for (Integer v : full) sum += v;
+        return sum;
+    }
+
+    @Benchmark
+    public long streamSequential() {
+        return StreamSupport.stream(full.spliterator(), false)
+                .mapToLong(Integer::longValue).sum();
+    }
+
+    @Benchmark
+    public long streamParallel() {
+        return StreamSupport.stream(full.spliterator(), true)
+                .mapToLong(Integer::longValue).sum();
+    }
+}
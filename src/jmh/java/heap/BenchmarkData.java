@@ -0,0 +1,107 @@
+package heap;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+
+/** Inputs shared by the benchmarks, generated from a fixed seed so that
+ * runs are comparable. */
+final class BenchmarkData {
+
+    private BenchmarkData() {
+    }
+
+    /** Return n distinct keys of the given type: "Integer" or "String".
+     * Strings are 4-8 lowercase letters like those in P2TestInput.txt. */
+    static Object[] keys(String type, int n, long seed) {
+        Random rand = new Random(seed);
+        Object[] keys = new Object[n];
+        if (type.equals("Integer")) {
+            for (int i = 0; i < n; i++) keys[i] = Integer.valueOf(i);
+            shuffle(keys, rand);
+        } else if (type.equals("String")) {
+            HashSet<String> seen = new HashSet<String>();
+            for (int i = 0; i < n; ) {
+                char[] c = new char[4 + rand.nextInt(5)];
+                for (int j = 0; j < c.length; j++) c[j] = (char) ('a' + rand.nextInt(26));
+                String s = new String(c);
+                if (seen.add(s)) keys[i++] = s;
+            }
+        } else {
+            throw new IllegalArgumentException("unknown key type: " + type);
+        }
+        return keys;
+    }
+
+    /** Return n priorities in the given pattern: "random", "ascending" or
+     * "descending". */
+    static Integer[] priorities(String pattern, int n, long seed) {
+        Integer[] p = new Integer[n];
+        Random rand = new Random(seed);
+        for (int i = 0; i < n; i++) {
+            if (pattern.equals("random")) p[i] = rand.nextInt(n);
+            else if (pattern.equals("ascending")) p[i] = i;
+            else if (pattern.equals("descending")) p[i] = n - i;
+            else throw new IllegalArgumentException("unknown pattern: " + pattern);
+        }
+        return p;
+    }
+
+    /** Return the indexes 0..n-1 in the given order: "sequential" or
+     * "random". */
+    static int[] order(String pattern, int n, long seed) {
+        int[] idx = new int[n];
+        for (int i = 0; i < n; i++) idx[i] = i;
+        if (pattern.equals("random")) {
+            Random rand = new Random(seed);
+            for (int i = n - 1; i > 0; i--) {
+                int j = rand.nextInt(i + 1);
+                int t = idx[i];
+                idx[i] = idx[j];
+                idx[j] = t;
+            }
+        } else if (!pattern.equals("sequential")) {
+            throw new IllegalArgumentException("unknown pattern: " + pattern);
+        }
+        return idx;
+    }
+
+    /** Return a road-like graph: a side * side grid with edges in both
+     * directions between neighbours, weights 1-4 (so the Manhattan
+     * distance is a consistent A* heuristic) and 1% of the edges removed. */
+    static CsrGraph grid(int side, long seed) {
+        Random rand = new Random(seed);
+        int n = side * side;
+        int[] from = new int[4 * n];
+        int[] to = new int[4 * n];
+        double[] w = new double[4 * n];
+        int m = 0;
+        for (int u = 0; u < n; u++) {
+            int x = u % side;
+            int y = u / side;
+            for (int d = 0; d < 2; d++) {
+                int v = d == 0 ? (x + 1 < side ? u + 1 : -1)
+                        : (y + 1 < side ? u + side : -1);
+                if (v < 0 || rand.nextInt(100) == 0) continue;
+                double weight = 1 + rand.nextInt(4);
+                from[m] = u;
+                to[m] = v;
+                w[m++] = weight;
+                from[m] = v;
+                to[m] = u;
+                w[m++] = weight;
+            }
+        }
+        return CsrGraph.fromEdges(n, Arrays.copyOf(from, m),
+                Arrays.copyOf(to, m), Arrays.copyOf(w, m));
+    }
+
+    private static void shuffle(Object[] a, Random rand) {
+        for (int i = a.length - 1; i > 0; i--) {
+            int j = rand.nextInt(i + 1);
+            Object t = a[i];
+            a[i] = a[j];
+            a[j] = t;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package heap;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** ExternalSort of a file of random longs in a fixed heap. Scores are
+ * seconds per sort; divide the input size by them for throughput. Run with
+ * -PjmhArgs="-p records=..." to sort larger inputs. */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgs = "-Xmx512m")
+@State(Scope.Benchmark)
+public class ExternalSortBenchmark {
+
+    /** 8 bytes each, so 16M records is 128 MB */
+    @Param({"16000000"})
+    public long records;
+
+    /** records per run; the number of runs is records / runLength */
+    @Param({"250000", "1000000"})
+    public int runLength;
+
+    Path dir;
+    Path input;
+    Path output;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("sortbench");
+        input = dir.resolve("input");
+        output = dir.resolve("output");
+        Random rand = new Random(1);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(input), 1 << 16))) {
+            for (long i = 0; i < records; i++) out.writeLong(rand.nextLong());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(input);
+        Files.deleteIfExists(output);
+        Files.delete(dir);
+    }
+
+    @Benchmark
+    public long sort() throws IOException {
+        return new ExternalSort<Long>(StreamCodec.LONG, runLength, dir)
+                .sort(input, output);
+    }
+}
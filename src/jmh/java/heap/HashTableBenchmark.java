@@ -0,0 +1,106 @@
+package heap;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** HashTable.put, get and remove. Each benchmark processes all size keys,
+ * so scores are microseconds per batch of size operations. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HashTableBenchmark {
+
+    @Param({"1000", "100000"})
+    public int size;
+
+    @Param({"Integer", "String"})
+    public String keyType;
+
+    /** order in which keys are looked up and removed */
+    @Param({"sequential", "random"})
+    public String pattern;
+
+    Object[] keys;
+    Object[] absent;
+    int[] order;
+    HashTable<Object, Object> full;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Object[] all = BenchmarkData.keys(keyType, 2 * size, 1);
+        keys = new Object[size];
+        absent = new Object[size];
+        System.arraycopy(all, 0, keys, 0, size);
+        System.arraycopy(all, size, absent, 0, size);
+        order = BenchmarkData.order(pattern, size, 2);
+        full = fill(new HashTable<Object, Object>());
+    }
+
+    HashTable<Object, Object> fill(HashTable<Object, Object> t) {
+        for (int i = 0; i < size; i++) t.put(keys[i], keys[i]);
+        return t;
+    }
+
+    /** A full table rebuilt before every invocation, for benchmarks that
+     * modify it */
+    @State(Scope.Thread)
+    public static class Filled {
+        HashTable<Object, Object> table;
+
+        @Setup(Level.Invocation)
+        public void fill(HashTableBenchmark b) {
+            table = b.fill(new HashTable<Object, Object>());
+        }
+    }
+
+    /** put into a table presized so that it never grows */
+    @Benchmark
+    public HashTable<Object, Object> putPresized() {
+        return fill(new HashTable<Object, Object>(size * 2));
+    }
+
+    /** put into a default table, growing from capacity 17 */
+    @Benchmark
+    public HashTable<Object, Object> putResizing() {
+        return fill(new HashTable<Object, Object>());
+    }
+
+    @Benchmark
+    public int getHit() {
+        int hits = 0;
+        for (int i : order) {
+            if (full.get(keys[i]) != null) hits++;
+        }
+        return hits;
+    }
+
+    @Benchmark
+    public int getMiss() {
+        int hits = 0;
+        for (int i : order) {
+            if (full.get(absent[i]) != null) hits++;
+        }
+        return hits;
+    }
+
+    @Benchmark
+    public HashTable<Object, Object> removeAll(Filled f) {
+        for (int i : order) f.table.remove(keys[i]);
+        return f.table;
+    }
+}
@@ -0,0 +1,80 @@
+package heap;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** The one put that makes a full HashTable resize, on the calling thread
+ * and split across a pool of threads workers. Scores are milliseconds per
+ * resize. */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xms8g", "-Xmx8g"})
+@State(Scope.Benchmark)
+public class HashTableResizeBenchmark {
+
+    /** 17 << 20 buckets resize at about 14M entries */
+    @Param({"20"})
+    public int doublings;
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    ForkJoinPool pool;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        pool = new ForkJoinPool(threads);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    /** A table one put short of resizing, refilled before every
+     * invocation */
+    @State(Scope.Thread)
+    public static class Full {
+        HashTable<Integer, Integer> table;
+        int next;
+
+        @Setup(Level.Invocation)
+        public void fill(HashTableResizeBenchmark b) {
+            int capacity = 17 << b.doublings;
+            table = new HashTable<Integer, Integer>(capacity);
+            next = (int) (capacity * 0.8);
+            for (int i = 0; i < next; i++) table.put(i, i);
+        }
+    }
+
+    @Benchmark
+    public int sequential(Full f) {
+        f.table.put(f.next, f.next);
+        return f.table.getCapacity();
+    }
+
+    @Benchmark
+    public int parallel(Full f) {
+        f.table.setParallelResize(true);
+        return pool.submit(() -> {
+            f.table.put(f.next, f.next);
+            return f.table.getCapacity();
+        }).join();
+    }
+}
@@ -0,0 +1,145 @@
+package heap;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** Heap.add, poll, changePriority and contains. Each benchmark processes
+ * all size values, so scores are microseconds per batch of size
+ * operations. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HeapBenchmark {
+
+    @Param({"1000", "10000"})
+    public int size;
+
+    @Param({"Integer", "String"})
+    public String keyType;
+
+    /** order of the priorities passed to add */
+    @Param({"random", "ascending", "descending"})
+    public String pattern;
+
+    Object[] values;
+    Integer[] priorities;
+    Integer[] newPriorities;
+    int[] removeOrder;
+    Object[] otherValues;
+    Heap<Object, Integer> full;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        values = BenchmarkData.keys(keyType, size, 1);
+        priorities = BenchmarkData.priorities(pattern, size, 2);
+        newPriorities = BenchmarkData.priorities("random", size, 3);
+        removeOrder = BenchmarkData.order("random", size, 4);
+        otherValues = new Object[size];
+        for (int i = 0; i < size; i++) otherValues[i] = new Object();
+        full = build();
+    }
+
+    Heap<Object, Integer> build() {
+        Heap<Object, Integer> h = new Heap<Object, Integer>();
+        for (int i = 0; i < size; i++) h.add(values[i], priorities[i]);
+        return h;
+    }
+
+    /** A full heap rebuilt before every invocation, for benchmarks that
+     * modify it */
+    @State(Scope.Thread)
+    public static class Filled {
+        Heap<Object, Integer> heap;
+
+        @Setup(Level.Invocation)
+        public void fill(HeapBenchmark b) {
+            heap = b.build();
+        }
+    }
+
+    @Benchmark
+    public Heap<Object, Integer> add() {
+        return build();
+    }
+
+    @Benchmark
+    public void pollAll(Filled f, Blackhole bh) {
+        Heap<Object, Integer> h = f.heap;
+        while (h.size() > 0) bh.consume(h.poll());
+    }
+
+    @Benchmark
+    public Heap<Object, Integer> changePriority(Filled f) {
+        Heap<Object, Integer> h = f.heap;
+        for (int i = 0; i < size; i++) h.changePriority(values[i], newPriorities[i]);
+        return h;
+    }
+
+    /** cancel-heavy: remove nine values in ten in random order, then poll
+     * the rest */
+    @Benchmark
+    public void removeMost(Filled f, Blackhole bh) {
+        Heap<Object, Integer> h = f.heap;
+        for (int i = 0; i < size; i++) {
+            if (i % 10 != 0) bh.consume(h.remove(values[removeOrder[i]]));
+        }
+        while (h.size() > 0) bh.consume(h.poll());
+    }
+
+    /** combine two heaps of size values: meld against polling one and
+     * adding to the other */
+    @State(Scope.Thread)
+    public static class Pair {
+        Heap<Object, Integer> a;
+        Heap<Object, Integer> b;
+
+        @Setup(Level.Invocation)
+        public void fill(HeapBenchmark bench) {
+            a = bench.build();
+            b = new Heap<Object, Integer>();
+            for (int i = 0; i < bench.size; i++) {
+                b.add(bench.otherValues[i], bench.newPriorities[i]);
+            }
+        }
+    }
+
+    @Benchmark
+    public Heap<Object, Integer> meld(Pair p) {
+        p.a.meld(p.b);
+        return p.a;
+    }
+
+    @Benchmark
+    public Heap<Object, Integer> pollAndAdd(Pair p) {
+        while (p.b.size() > 0) {
+            Integer pr = p.b.peekPriority();
+            p.a.add(p.b.poll(), pr);
+        }
+        return p.a;
+    }
+
+    @Benchmark
+    public int contains() {
+        int hits = 0;
+        for (int i = 0; i < size; i++) {
+            if (full.contains(values[i])) hits++;
+        }
+        return hits;
+    }
+}
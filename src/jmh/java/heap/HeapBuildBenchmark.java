@@ -0,0 +1,63 @@
+package heap;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Building a heap from arrays: Heap.of, and Heap.parallelOf in a pool of
+ * threads workers, for speedup by core count. Scores are milliseconds per
+ * build. */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = "-Xmx8g")
+@State(Scope.Benchmark)
+public class HeapBuildBenchmark {
+
+    @Param({"10000000"})
+    public int size;
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    Integer[] values;
+    Integer[] priorities;
+    ForkJoinPool pool;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        values = new Integer[size];
+        for (int i = 0; i < size; i++) values[i] = i;
+        priorities = BenchmarkData.priorities("random", size, 2);
+        pool = new ForkJoinPool(threads);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public Heap<Integer, Integer> sequential() {
+        return Heap.of(values, priorities);
+    }
+
+    @Benchmark
+    public Heap<Integer, Integer> parallel() {
+        return pool.submit(() -> Heap.parallelOf(values, priorities)).join();
+    }
+}
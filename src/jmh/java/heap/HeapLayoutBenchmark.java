@@ -0,0 +1,90 @@
+package heap;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Poll and add on one large heap kept at size values: Heap against BHeap
+ * with the flat, cache-line and page layouts. sift gives the root a new
+ * random priority, which sinks it most of the way to the leaves without
+ * allocating; pollAndAdd polls the root and adds it back a little later.
+ * Scores are nanoseconds per operation. 100M values need about 12 GB. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms16g", "-Xmx16g"})
+@State(Scope.Thread)
+public class HeapLayoutBenchmark {
+
+    @Param({"1000000", "10000000", "100000000"})
+    public int size;
+
+    /** "heap" for Heap, or the BHeap block size: "flat", "line" or "page" */
+    @Param({"heap", "flat", "line", "page"})
+    public String layout;
+
+    /* random priorities reused in turn, boxed up front for Heap */
+    static final int DRAWS = 1 << 20;
+    long[] draws;
+    Long[] boxed;
+    int next;
+
+    Heap<Integer, Long> heap;
+    BHeap<Integer> bheap;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random rand = new Random(5);
+        draws = new long[DRAWS];
+        boxed = new Long[DRAWS];
+        for (int i = 0; i < DRAWS; i++) {
+            draws[i] = rand.nextInt(1 << 30);
+            boxed[i] = draws[i];
+        }
+        if (layout.equals("heap")) {
+            heap = new Heap<Integer, Long>(size);
+            for (int i = 0; i < size; i++) heap.add(i, (long) rand.nextInt(1 << 30));
+        } else {
+            int blockSize = layout.equals("flat") ? BHeap.FLAT
+                    : layout.equals("line") ? BHeap.CACHE_LINE : BHeap.PAGE;
+            bheap = new BHeap<Integer>(size, blockSize);
+            for (int i = 0; i < size; i++) bheap.add(i, rand.nextInt(1 << 30));
+        }
+    }
+
+    @Benchmark
+    public Object sift() {
+        int i = next++ & (DRAWS - 1);
+        if (heap != null) return heap.replaceTop(heap.peek(), boxed[i]);
+        bheap.changePriority(bheap.peek(), draws[i]);
+        return bheap;
+    }
+
+    @Benchmark
+    public Object pollAndAdd() {
+        int i = next++ & (DRAWS - 1);
+        if (heap != null) {
+            long p = heap.peekPriority();
+            Integer v = heap.poll();
+            heap.add(v, p + (draws[i] & 0xFFFFF));
+            return v;
+        }
+        long p = bheap.peekPriority();
+        Integer v = bheap.poll();
+        bheap.add(v, p + (draws[i] & 0xFFFFF));
+        return v;
+    }
+}
@@ -0,0 +1,68 @@
+package heap;
+
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Schedule timers timers with random delays up to spreadMillis, then wait
+ * for all of them to fire, with TaskScheduler and with a one-thread
+ * ScheduledThreadPoolExecutor. Tasks run on the scheduling thread in both.
+ * Scores are milliseconds per batch; a score well above spreadMillis means
+ * the scheduler fell behind its deadlines. */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+@State(Scope.Benchmark)
+public class SchedulerBenchmark {
+
+    @Param({"1000000"})
+    public int timers;
+
+    @Param({"2000", "20000"})
+    public int spreadMillis;
+
+    long[] delays;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random rand = new Random(1);
+        delays = new long[timers];
+        for (int i = 0; i < timers; i++) {
+            delays[i] = (long) (rand.nextDouble() * spreadMillis * 1000000L);
+        }
+    }
+
+    @Benchmark
+    public void taskScheduler() throws InterruptedException {
+        TaskScheduler s = new TaskScheduler(Runnable::run);
+        CountDownLatch done = new CountDownLatch(timers);
+        for (long d : delays) s.schedule(done::countDown, d, TimeUnit.NANOSECONDS);
+        done.await();
+        s.shutdown();
+    }
+
+    @Benchmark
+    public void scheduledThreadPool() throws InterruptedException {
+        ScheduledThreadPoolExecutor s = new ScheduledThreadPoolExecutor(1);
+        CountDownLatch done = new CountDownLatch(timers);
+        for (long d : delays) s.schedule(done::countDown, d, TimeUnit.NANOSECONDS);
+        done.await();
+        s.shutdown();
+    }
+}
@@ -0,0 +1,65 @@
+package heap;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Dijkstra and A* on road-like grid graphs of side * side nodes. Scores are
+ * milliseconds per search from one corner. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+@State(Scope.Thread)
+public class ShortestPathBenchmark {
+
+    /** 1000 gives a graph of one million nodes */
+    @Param({"100", "1000"})
+    public int side;
+
+    CsrGraph graph;
+    int target;
+    ShortestPaths.Heuristic manhattan;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        graph = BenchmarkData.grid(side, 1);
+        target = side * side - 1;
+        final int s = side;
+        manhattan = v -> (s - 1 - v % s) + (s - 1 - v / s);
+    }
+
+    @Benchmark
+    public ShortestPaths.Result dijkstraAll() {
+        return ShortestPaths.dijkstra(graph, 0);
+    }
+
+    /** the grid's weights are whole numbers, so a RadixHeap can drive it */
+    @Benchmark
+    public ShortestPaths.Result dijkstraRadixAll() {
+        return ShortestPaths.dijkstraRadix(graph, 0);
+    }
+
+    @Benchmark
+    public ShortestPaths.Result dijkstraToCorner() {
+        return ShortestPaths.dijkstra(graph, 0, target);
+    }
+
+    @Benchmark
+    public ShortestPaths.Result aStarToCorner() {
+        return ShortestPaths.aStar(graph, 0, target, manhattan);
+    }
+}
@@ -0,0 +1,69 @@
+package heap;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** The k highest of size priorities, found with TopK, by sorting, and by
+ * polling an unbounded Heap. Scores are milliseconds per selection. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TopKBenchmark {
+
+    @Param({"1000000"})
+    public int size;
+
+    @Param({"10", "1000"})
+    public int k;
+
+    /** order of the priorities: ascending is the worst case for TopK,
+     * since every value replaces the root */
+    @Param({"random", "ascending"})
+    public String pattern;
+
+    Integer[] priorities;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        priorities = BenchmarkData.priorities(pattern, size, 2);
+    }
+
+    @Benchmark
+    public Object topK() {
+        TopK<Integer, Integer> t = new TopK<Integer, Integer>(k);
+        for (int i = 0; i < size; i++) t.offer(i, priorities[i]);
+        return t.toList();
+    }
+
+    @Benchmark
+    public Object sort() {
+        Integer[] p = priorities.clone();
+        Arrays.sort(p);
+        return Arrays.copyOfRange(p, size - k, size);
+    }
+
+    @Benchmark
+    public Object unboundedHeap() {
+        Heap<Integer, Integer> h = new Heap<Integer, Integer>(size);
+        for (int i = 0; i < size; i++) h.add(i, -priorities[i]);
+        Object[] top = new Object[k];
+        for (int i = 0; i < k; i++) top[i] = h.poll();
+        return top;
+    }
+}
@@ -1,13 +1,19 @@
 package heap;
 
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.function.Consumer;
 
 /** An ArrayList-like dynamic array class that allocates
 * new memory when needed */
-public class AList<T> {
+public class AList<T> implements Iterable<T> {
 
   protected int size; // number of elements in the AList
   protected T[] a; // the backing array storage
+  protected GrowthPolicy growth; // how much a grows when it is full
 
   public int size() {
     return size;
@@ -19,34 +25,63 @@ public class AList<T> {
 
   /** Creates an AList with a default capacity of 8 */
   public AList() {
-    a = createArray(8);
-    size = 0;
+    this(8);
   }
 
   /** Creates an AList with the given capacity */
   public AList(int capacity) {
+    this(capacity, GrowthPolicy.DOUBLING);
+  }
+
+  /** Creates an AList with the given capacity that grows according to
+  * policy when it is full */
+  public AList(int capacity, GrowthPolicy policy) {
     a = createArray(capacity);
     size = 0;
+    growth = policy;
   }
 
-  /* Grows a to double its current size if newSize exceeds a's capacity. Does
-  * nothing if newSize < a.length.  Grow the array by allocating a new array
-  * and copying the old array's contents into the new one. This does *not*
-  * change the AList's size. */
+  /* Grows a according to the growth policy if newSize exceeds a's capacity,
+  * repeating until newSize fits. Does nothing if newSize <= a.length. Grow
+  * the array by allocating a new array and copying the old array's contents
+  * into the new one. This does *not* change the AList's size.
+  * @throws OutOfMemoryError if newSize exceeds GrowthPolicy.MAX_CAPACITY */
   protected void growIfNeeded(int newSize) {
     if (newSize > a.length) {
-      T[] b = createArray(a.length * 2);
+      if (newSize > GrowthPolicy.MAX_CAPACITY) {
+        throw new OutOfMemoryError("AList capacity exceeded: " + newSize);
+      }
+      // a policy may overflow to a negative capacity or return more than
+      // an array can hold
+      int cap = Math.min(Math.max(growth.grow(a.length, newSize), newSize),
+          GrowthPolicy.MAX_CAPACITY);
+      T[] b = createArray(cap);
       System.arraycopy(a, 0, b, 0, a.length);
       a = b;
     }
   }
 
+  /** Makes sure the AList can hold n elements without growing again.
+  *  This does not change the size. */
+  public void ensureCapacity(int n) {
+    growIfNeeded(n);
+  }
+
+  /** Shrinks the capacity to the current size, giving back unused
+  *  memory. */
+  public void trimToSize() {
+    if (a.length > size) {
+      a = Arrays.copyOf(a, size);
+    }
+  }
+
   /** Resizes the AList.
   *  this *does* modify the size, and may modify the capacity if newsize
-  *  exceeds capacity. */
+  *  exceeds capacity. Elements removed by shrinking the size are cleared. */
   public void resize(int newSize) {
-    size = newSize;
     growIfNeeded(newSize);
+    if (newSize < size) Arrays.fill(a, newSize, size, null);
+    size = newSize;
   }
 
   /** Gets element i from AList.
@@ -71,7 +106,7 @@ public class AList<T> {
   /** Appends value at the end of the AList, increasing size by 1.
   * Grows the array if needed to fit the appended value */
   public void append(T value) {
-    resize(++size);
+    resize(size + 1);
     a[size - 1] = value;
   }
 
@@ -86,6 +121,132 @@ public class AList<T> {
     return tmp;
   }
 
+  /** Appends every element of values, growing the array at most once */
+  public void appendAll(T[] values) {
+    growIfNeeded(sizePlus(values.length));
+    System.arraycopy(values, 0, a, size, values.length);
+    size += values.length;
+  }
+
+  /** Appends every element of other, growing the array at most once */
+  public void appendAll(AList<? extends T> other) {
+    int n = other.size;
+    growIfNeeded(sizePlus(n));
+    System.arraycopy(other.a, 0, a, size, n);
+    size += n;
+  }
+
+  /* Return size + n.
+  * @throws OutOfMemoryError if that exceeds GrowthPolicy.MAX_CAPACITY */
+  private int sizePlus(int n) {
+    if (n > GrowthPolicy.MAX_CAPACITY - size) {
+      throw new OutOfMemoryError("AList capacity exceeded: " + ((long) size + n));
+    }
+    return size + n;
+  }
+
+  /** Removes elements from..to-1, shifting later elements down.
+  * @throws ArrayIndexOutOfBoundsException if 0 <= from <= to <= size does
+  * not hold */
+  public void removeRange(int from, int to) {
+    if (from < 0 || from > to || to > size) {
+      throw new ArrayIndexOutOfBoundsException();
+    }
+    System.arraycopy(a, to, a, from, size - to);
+    int newSize = size - (to - from);
+    Arrays.fill(a, newSize, size, null);
+    size = newSize;
+  }
+
+  /** Removes every element from index newSize on. Cannot modify capacity.
+  * @throws ArrayIndexOutOfBoundsException if 0 <= newSize <= size does not
+  * hold */
+  public void truncate(int newSize) {
+    removeRange(newSize, size);
+  }
+
+  /** Sorts the AList in place according to cmp. The sort is stable. */
+  public void sort(Comparator<? super T> cmp) {
+    Arrays.sort(a, 0, size, cmp);
+  }
+
+  /** Searches the AList, which must be sorted according to cmp, for key.
+  * Returns its index if found, otherwise (-(insertion point) - 1), as
+  * java.util.Arrays.binarySearch does. */
+  public int binarySearch(T key, Comparator<? super T> cmp) {
+    return Arrays.binarySearch(a, 0, size, key, cmp);
+  }
+
+  /** Returns an iterator over elements 0..size-1 in order */
+  public Iterator<T> iterator() {
+    return new Iterator<T>() {
+      private int i = 0;
+
+      public boolean hasNext() {
+        return i < size;
+      }
+
+      public T next() {
+        if (i >= size) throw new NoSuchElementException();
+        return a[i++];
+      }
+    };
+  }
+
+  /** Returns a spliterator over elements 0..size-1 that splits its index
+  * range in half, so that StreamSupport.stream(list.spliterator(), true)
+  * divides the work evenly. The range is fixed when the first element is
+  * read, so the AList must not change size during traversal. */
+  public Spliterator<T> spliterator() {
+    return new ASpliterator(0, -1);
+  }
+
+  /* A spliterator over a[index..fence-1]; fence is -1 until first use. */
+  private class ASpliterator implements Spliterator<T> {
+    private int index;
+    private int fence;
+
+    ASpliterator(int index, int fence) {
+      this.index = index;
+      this.fence = fence;
+    }
+
+    private int getFence() {
+      if (fence < 0) fence = size;
+      return fence;
+    }
+
+    public Spliterator<T> trySplit() {
+      int hi = getFence();
+      int mid = (index + hi) >>> 1;
+      if (index >= mid) return null;
+      Spliterator<T> prefix = new ASpliterator(index, mid);
+      index = mid;
+      return prefix;
+    }
+
+    public boolean tryAdvance(Consumer<? super T> action) {
+      if (index >= getFence()) return false;
+      action.accept(a[index++]);
+      return true;
+    }
+
+    public void forEachRemaining(Consumer<? super T> action) {
+      T[] arr = a;
+      int hi = getFence();
+      for (int i = index; i < hi; i++) action.accept(arr[i]);
+      index = hi;
+    }
+
+    public long estimateSize() {
+      return getFence() - index;
+    }
+
+    public int characteristics() {
+      return Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED;
+    }
+  }
+
   /*  Create and return a T[] of size n.
   *  This is necessary because generics and arrays don't play well together.*/
   @SuppressWarnings("unchecked")
@@ -0,0 +1,249 @@
+package heap;
+
+import java.util.NoSuchElementException;
+
+/** A min-heap of distinct values of type V with long priorities, like
+ * Heap, but laid out for heaps far larger than the CPU caches. Heap keeps
+ * level i of its tree in c[2^i - 1 .. 2^(i+1) - 2], so once the tree is
+ * deeper than a page every level of a sift lands on a new page. A BHeap
+ * instead cuts the tree into blocks of blockSize slots, each holding a
+ * few complete subtrees, in the style of a B-heap: a sift from the root to
+ * a leaf then touches one block per log2(blockSize) - 1 levels instead of
+ * one page per level. Priorities are kept unboxed in a LongAList with the
+ * same layout, so sifting compares without following references, and each
+ * node records its own slot, so moving it does not touch the index map. */
+public final class BHeap<V> {
+
+    /** A block of 8 priorities: 64 bytes, a cache line */
+    public static final int CACHE_LINE = 8;
+
+    /** A block of 512 priorities: 4 KiB, a page */
+    public static final int PAGE = 512;
+
+    /** A block larger than any heap, giving the flat layout of Heap */
+    public static final int FLAT = 1 << 30;
+
+    /**
+     * Slots are numbered so that block b is c[b*B .. b*B + B-1], where B is
+     * the block size. As in Kamp's B-heap, within a block nodes 2j and 2j+1
+     * are the children of node j, and the B/2 nodes j >= B/2 are the
+     * block's leaves. Block 0 holds the root of the whole heap in slot 1,
+     * with slot 0 unused. Every other block leaves slots 0 and 1 unused and
+     * holds two sibling subtrees rooted at slots 2 and 3, whose parent is
+     * leaf B/2 + (b-1) % (B/2) of block (b-1) / (B/2). Keeping siblings in
+     * one block means choosing the smaller child never reads two blocks.
+     *
+     * Class Invariants:
+     *     1. Values fill the used slots of c in order, so every slot below
+     *        c.size() that is not one of the unused slots is non-null, and
+     *        every parent slot of a filled slot is filled.
+     *     2. keys.size() == c.size() and keys[k] is the priority of c[k].
+     *     3. The priority in each slot is >= that of its parent.
+     *     4. The heap contains no duplicate values.
+     *     5. map maps each value in the heap to its node, and each node's
+     *        index is its slot in c.
+     */
+    AList<Node> c;
+    LongAList keys;
+    HashTable<V, Node> map;
+    private final int shift; // log2 of the block size
+    private int size;
+
+    /** Constructor: an empty heap with page-sized blocks. */
+    public BHeap() {
+        this(10, PAGE);
+    }
+
+    /** Constructor: an empty heap that holds capacity values without
+     *  growing c or rehashing map, with blocks of blockSize slots.
+     *  @throws IllegalArgumentException if blockSize is not a power of two
+     *          between 4 and FLAT */
+    public BHeap(int capacity, int blockSize) {
+        if (blockSize < 4 || blockSize > FLAT || Integer.bitCount(blockSize) != 1) {
+            throw new IllegalArgumentException("block size " + blockSize
+                    + " is not a power of two in [4, " + FLAT + "]");
+        }
+        shift = Integer.numberOfTrailingZeros(blockSize);
+        c = new AList<Node>(slot(capacity));
+        keys = new LongAList(slot(capacity));
+        map = new HashTable<V, Node>(capacity * 5 / 4 + 1);
+    }
+
+    /* A value in the heap and its slot in c and keys */
+    final class Node {
+        final V value;
+        int index;
+
+        Node(V value) {
+            this.value = value;
+        }
+    }
+
+    /** Return the number of values in this heap. */
+    public int size() {
+        return size;
+    }
+
+    /** Return the number of slots in each block. */
+    public int blockSize() {
+        return 1 << shift;
+    }
+
+    /** Return true if the value v is in the heap. */
+    public boolean contains(V v) {
+        return map.containsKey(v);
+    }
+
+    /** Add v with priority p to the heap.
+     *  @throws IllegalArgumentException if v is already in the heap. */
+    public void add(V v, long p) throws IllegalArgumentException {
+        if (map.containsKey(v)) throw new IllegalArgumentException();
+        Node n = new Node(v);
+        int k = slot(size);
+        while (c.size < k) {
+            c.append(null);
+            keys.append(0);
+        }
+        c.append(n);
+        keys.append(p);
+        map.put(v, n);
+        size++;
+        bubbleUp(n, p, k);
+    }
+
+    /** Return the value with the lowest priority.
+     *  @throws NoSuchElementException if the heap is empty. */
+    public V peek() throws NoSuchElementException {
+        if (size == 0) throw new NoSuchElementException();
+        return c.get(1).value;
+    }
+
+    /** Return the lowest priority in the heap.
+     *  @throws NoSuchElementException if the heap is empty. */
+    public long peekPriority() throws NoSuchElementException {
+        if (size == 0) throw new NoSuchElementException();
+        return keys.get(1);
+    }
+
+    /** Remove and return the value with the lowest priority.
+     *  @throws NoSuchElementException if the heap is empty. */
+    public V poll() throws NoSuchElementException {
+        if (size == 0) throw new NoSuchElementException();
+        V v = c.get(1).value;
+        removeAt(1);
+        return v;
+    }
+
+    /** Change the priority of value v to p.
+     *  @throws IllegalArgumentException if v is not in the heap. */
+    public void changePriority(V v, long p) throws IllegalArgumentException {
+        Node n = map.get(v);
+        if (n == null) throw new IllegalArgumentException();
+        int k = n.index;
+        bubbleUp(n, p, k);
+        if (n.index == k) bubbleDown(n, p, k);
+    }
+
+    /** Remove v from the heap and return its priority.
+     *  @throws IllegalArgumentException if v is not in the heap. */
+    public long remove(V v) throws IllegalArgumentException {
+        Node n = map.get(v);
+        if (n == null) throw new IllegalArgumentException();
+        long p = keys.get(n.index);
+        removeAt(n.index);
+        return p;
+    }
+
+    /* Remove the node in slot k, moving the last node into its place. */
+    private void removeAt(int k) {
+        map.remove(c.get(k).value);
+        Node last = c.pop();
+        long p = keys.pop();
+        // drop the unused slots of an emptied block
+        int mask = (1 << shift) - 1;
+        int unused = c.size == 1 ? 1 : c.size > mask + 1 && (c.size & mask) == 2 ? 2 : 0;
+        for (int i = 0; i < unused; i++) {
+            c.pop();
+            keys.pop();
+        }
+        size--;
+        if (k < c.size) {
+            bubbleUp(last, p, k);
+            if (last.index == k) bubbleDown(last, p, k);
+        }
+    }
+
+    /* Move n, with priority p, up from slot k, moving larger ancestors
+     * down into the hole, and store it in its final slot. */
+    private void bubbleUp(Node n, long p, int k) {
+        while (k != 1) {
+            int h = parent(k);
+            long q = keys.get(h);
+            if (p >= q) break;
+            Node parent = c.get(h);
+            c.put(k, parent);
+            keys.put(k, q);
+            parent.index = k;
+            k = h;
+        }
+        c.put(k, n);
+        keys.put(k, p);
+        n.index = k;
+    }
+
+    /* Move n, with priority p, down from slot k, moving smaller children
+     * up into the hole, and store it in its final slot. On a tie, take the
+     * right child. Only keys is read to choose the path. */
+    private void bubbleDown(Node n, long p, int k) {
+        while (true) {
+            long a = leftChild(k);
+            if (a >= c.size) break;
+            int h = (int) a;
+            long q = keys.get(h);
+            if (a + 1 < c.size && keys.get(h + 1) <= q) {
+                h++;
+                q = keys.get(h);
+            }
+            if (p <= q) break;
+            Node child = c.get(h);
+            c.put(k, child);
+            keys.put(k, q);
+            child.index = k;
+            k = h;
+        }
+        c.put(k, n);
+        keys.put(k, p);
+        n.index = k;
+    }
+
+    /* Return the slot of the i-th value in fill order, skipping the
+     * unused slots at the start of each block. */
+    private int slot(int i) {
+        int first = (1 << shift) - 1;   // nodes in block 0
+        if (i < first) return i + 1;
+        i -= first;
+        return (1 + i / (first - 1) << shift) + 2 + i % (first - 1);
+    }
+
+    /* Return the slot of the parent of slot k. Precondition: k is not the
+     * root slot 1. */
+    private int parent(int k) {
+        int j = k & ((1 << shift) - 1);
+        int b = k >>> shift;
+        if (j >= 4 || b == 0) return k - j + (j >>> 1);
+        b--;   // k's block hangs below leaf b % (B/2) of block b / (B/2)
+        return ((b >>> shift - 1) << shift) + (1 << shift - 1)
+                + (b & ((1 << shift - 1) - 1));
+    }
+
+    /* Return the slot of the left child of slot k; the right child is the
+     * next slot. It is a long because the child of a leaf slot near the end
+     * of a large heap can lie beyond the int range; it is then past
+     * c.size() anyway. */
+    private long leftChild(int k) {
+        int j = k & ((1 << shift) - 1);
+        if (j < 1 << shift - 1) return k + j;
+        long block = ((long) (k >>> shift) << shift - 1) + j - (1 << shift - 1) + 1;
+        return (block << shift) + 2;
+    }
+}
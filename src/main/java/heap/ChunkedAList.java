@@ -0,0 +1,113 @@
+package heap;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/** An AList that stores its elements in fixed-size chunks instead of one
+* backing array. Growing allocates a new chunk and never copies existing
+* elements; only the small directory of chunk references is copied when it
+* fills up. Element i lives at chunks[i >>> shift][i & mask]. */
+public class ChunkedAList<T> {
+
+  protected int size; // number of elements in the ChunkedAList
+  protected Object[][] chunks; // the directory of chunks
+  protected int chunkCount; // number of chunks allocated so far
+  protected final int shift; // log2 of the chunk size
+  protected final int mask; // chunk size - 1
+
+  public int size() {
+    return size;
+  }
+
+  /* A long, since chunkCount << shift passes Integer.MAX_VALUE with two
+  * chunks of 2^30 elements */
+  protected long getCap() {
+    return (long) chunkCount << shift;
+  }
+
+  /** Creates a ChunkedAList with chunks of 2^14 elements */
+  public ChunkedAList() {
+    this(14);
+  }
+
+  /** Creates a ChunkedAList with chunks of 2^chunkBits elements.
+  * @throws IllegalArgumentException unless 0 <= chunkBits <= 30 */
+  public ChunkedAList(int chunkBits) {
+    if (chunkBits < 0 || chunkBits > 30) throw new IllegalArgumentException();
+    shift = chunkBits;
+    mask = (1 << chunkBits) - 1;
+    chunks = new Object[8][];
+    size = 0;
+  }
+
+  /* Allocates chunks until newSize elements fit. Does nothing if newSize
+  * <= capacity. Existing chunks are never copied. This does *not* change
+  * the size. */
+  protected void growIfNeeded(int newSize) {
+    if (newSize < 0) throw new OutOfMemoryError("ChunkedAList capacity exceeded");
+    while (getCap() < newSize) {
+      if (chunkCount == chunks.length) {
+        chunks = Arrays.copyOf(chunks, chunks.length * 2);
+      }
+      chunks[chunkCount++] = new Object[mask + 1];
+    }
+  }
+
+  /** Resizes the ChunkedAList.
+  *  this *does* modify the size, and may modify the capacity if newsize
+  *  exceeds capacity. Elements removed by shrinking the size are cleared. */
+  public void resize(int newSize) {
+    growIfNeeded(newSize);
+    for (int i = newSize; i < size; i++) {
+      chunks[i >>> shift][i & mask] = null;
+    }
+    size = newSize;
+  }
+
+  /** Gets element i from ChunkedAList.
+  * @throws ArrayIndexOutOfBoundsException if 0 <= i < size does not hold */
+  @SuppressWarnings("unchecked")
+  public T get(int i) {
+    if (0 <= i && i < size) {
+      return (T) chunks[i >>> shift][i & mask];
+    }
+    throw new ArrayIndexOutOfBoundsException();
+  }
+
+  /** Sets the ith element of the list to value.
+  * @throws ArrayIndexOutOfBoundsException if 0 <= i < size does not hold */
+  public void put(int i, T value) {
+    if (0 <= i && i < size) {
+      chunks[i >>> shift][i & mask] = value;
+      return;
+    }
+    throw new ArrayIndexOutOfBoundsException();
+  }
+
+  /** Appends value at the end of the ChunkedAList, increasing size by 1.
+  * Allocates a new chunk if needed to fit the appended value */
+  public void append(T value) {
+    if (size == getCap()) growIfNeeded(size + 1);
+    chunks[size >>> shift][size & mask] = value;
+    size++;
+  }
+
+  /** Removes and returns the value at the end of the ChunkedAList.
+  *  this *does* modify size and cannot modify capacity.
+  *  @throws NoSuchElementException if size == 0*/
+  public T pop() {
+    if (size == 0) throw new NoSuchElementException();
+    T tmp = get(size - 1);
+    size--;
+    chunks[size >>> shift][size & mask] = null;
+    return tmp;
+  }
+
+  /** Releases the chunks past the one holding the last element. */
+  public void trimToSize() {
+    int needed = (size + mask) >>> shift;
+    for (int c = needed; c < chunkCount; c++) chunks[c] = null;
+    chunkCount = needed;
+  }
+
+}
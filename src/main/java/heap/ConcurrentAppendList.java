@@ -0,0 +1,100 @@
+package heap;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/** An append-only list that many threads can append to without a lock.
+ * Each producer claims a slot with a fetch-and-add on the claim counter and
+ * then stores its value there. Storage is a short directory of chunks whose
+ * sizes double (2^b, 2^(b+1), ...), so growth installs one new chunk with a
+ * CAS and never copies existing elements.
+ *
+ * Readers see a prefix of the list up to the published watermark: the
+ * first slot that has been claimed but not yet written. Every element
+ * below size() is visible and never changes. Values may not be null. */
+public class ConcurrentAppendList<T> {
+
+    private final int firstBits; // log2 of the size of chunk 0
+    private final int max;       // most elements the list can hold
+    private final AtomicReferenceArray<AtomicReferenceArray<T>> chunks;
+    private final AtomicInteger claimed = new AtomicInteger();
+    private final AtomicInteger published = new AtomicInteger();
+
+    /** Constructor: an empty list whose first chunk holds 1024 elements */
+    public ConcurrentAppendList() {
+        this(10);
+    }
+
+    /** Constructor: an empty list whose first chunk holds 2^firstBits
+     * elements.
+     * @throws IllegalArgumentException unless 0 <= firstBits <= 30 */
+    public ConcurrentAppendList(int firstBits) {
+        if (firstBits < 0 || firstBits > 30) throw new IllegalArgumentException();
+        this.firstBits = firstBits;
+        this.max = Integer.MAX_VALUE - (1 << firstBits) + 1;
+        chunks = new AtomicReferenceArray<AtomicReferenceArray<T>>(32 - firstBits);
+    }
+
+    /** Append value and return its index. The value becomes visible to
+     * readers once every earlier claimed slot has been written.
+     * @throws NullPointerException if value is null
+     * @throws IllegalStateException if the list is full */
+    public int append(T value) {
+        if (value == null) throw new NullPointerException();
+        int i = claimed.getAndIncrement();
+        if (i < 0 || i >= max) {
+            claimed.getAndDecrement();
+            throw new IllegalStateException("ConcurrentAppendList is full");
+        }
+        int p = i + (1 << firstBits);
+        int k = 31 - Integer.numberOfLeadingZeros(p);
+        chunk(k - firstBits).set(p - (1 << k), value);
+        if (i == published.get()) advance();
+        return i;
+    }
+
+    /** Return the number of published elements: every element with a
+     * smaller index has been written and is visible. */
+    public int size() {
+        return advance();
+    }
+
+    /** Return element i.
+     * @throws ArrayIndexOutOfBoundsException if 0 <= i < size() does not
+     *         hold */
+    public T get(int i) {
+        if (i < 0 || (i >= published.get() && i >= advance())) {
+            throw new ArrayIndexOutOfBoundsException();
+        }
+        return slot(i);
+    }
+
+    /* Move the watermark past every written slot and return it. */
+    private int advance() {
+        while (true) {
+            int w = published.get();
+            int end = w;
+            int limit = Math.min(claimed.get(), max);
+            while (end < limit && slot(end) != null) end++;
+            if (end == w || published.compareAndSet(w, end)) return end;
+        }
+    }
+
+    /* Return slot i, or null if it is claimed but not written yet. */
+    private T slot(int i) {
+        int p = i + (1 << firstBits);
+        int k = 31 - Integer.numberOfLeadingZeros(p);
+        AtomicReferenceArray<T> c = chunks.get(k - firstBits);
+        return c == null ? null : c.get(p - (1 << k));
+    }
+
+    /* Return chunk c, installing it if no other thread has. */
+    private AtomicReferenceArray<T> chunk(int c) {
+        AtomicReferenceArray<T> arr = chunks.get(c);
+        if (arr == null) {
+            arr = new AtomicReferenceArray<T>(1 << (firstBits + c));
+            if (!chunks.compareAndSet(c, null, arr)) arr = chunks.get(c);
+        }
+        return arr;
+    }
+}
@@ -0,0 +1,83 @@
+package heap;
+
+/** A directed graph with non-negative edge weights, stored in compressed
+ * sparse row form: the edges leaving node u are
+ * targets[offsets[u]..offsets[u+1]-1], with the matching weights. Nodes are
+ * 0..nodeCount()-1. Instances are immutable. */
+public final class CsrGraph {
+
+    private final int[] offsets;
+    private final int[] targets;
+    private final double[] weights;
+
+    private CsrGraph(int[] offsets, int[] targets, double[] weights) {
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+    }
+
+    /** Return a graph on n nodes with an edge from[i] -> to[i] of weight
+     *  weight[i] for each i. Parallel edges and self-loops are kept.
+     *  @throws IllegalArgumentException if the arrays differ in length, a
+     *          node is outside 0..n-1, or a weight is negative or NaN. */
+    public static CsrGraph fromEdges(int n, int[] from, int[] to,
+            double[] weight) {
+        int m = from.length;
+        if (n < 0 || to.length != m || weight.length != m) {
+            throw new IllegalArgumentException();
+        }
+        int[] offsets = new int[n + 1];
+        for (int i = 0; i < m; i++) {
+            if (from[i] < 0 || from[i] >= n || to[i] < 0 || to[i] >= n) {
+                throw new IllegalArgumentException("edge " + i + " leaves the graph");
+            }
+            if (!(weight[i] >= 0)) {
+                throw new IllegalArgumentException("edge " + i + " has weight " + weight[i]);
+            }
+            offsets[from[i] + 1]++;
+        }
+        for (int u = 0; u < n; u++) offsets[u + 1] += offsets[u];
+
+        // counting sort of the edges by source node
+        int[] next = new int[n];
+        System.arraycopy(offsets, 0, next, 0, n);
+        int[] targets = new int[m];
+        double[] weights = new double[m];
+        for (int i = 0; i < m; i++) {
+            int e = next[from[i]]++;
+            targets[e] = to[i];
+            weights[e] = weight[i];
+        }
+        return new CsrGraph(offsets, targets, weights);
+    }
+
+    /** Return the number of nodes */
+    public int nodeCount() {
+        return offsets.length - 1;
+    }
+
+    /** Return the number of edges */
+    public int edgeCount() {
+        return targets.length;
+    }
+
+    /** Return the index of the first edge leaving u */
+    public int firstEdge(int u) {
+        return offsets[u];
+    }
+
+    /** Return one past the index of the last edge leaving u */
+    public int endEdge(int u) {
+        return offsets[u + 1];
+    }
+
+    /** Return the node edge e leads to */
+    public int target(int e) {
+        return targets[e];
+    }
+
+    /** Return the weight of edge e */
+    public double weight(int e) {
+        return weights[e];
+    }
+}
@@ -0,0 +1,581 @@
+package heap;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/** A PackedKeyTable of String values whose mutations survive crashes.
+ *
+ * Every put and remove is appended to a write-ahead log in dir. Records are
+ * buffered in memory and written with a single write and fsync per batch
+ * (group commit): with a sync interval of 0, put and remove return only
+ * once their record is on disk, and concurrent writers share one fsync;
+ * with a positive interval, a background thread syncs that often and at
+ * most that much of the latest writes can be lost in a crash.
+ *
+ * With a sync interval of 0 a change reaches the table only after its
+ * record is on disk, in log order, so readers never see a change that a
+ * failed write left out of the log. With a positive interval a change is
+ * visible as soon as its record is buffered, like the writes it may lose.
+ *
+ * When the log grows past compactBytes it is rotated and the table is
+ * written to a snapshot, after which the old log is deleted. On open, the
+ * snapshot is loaded and the logs written after it are replayed; a torn or
+ * corrupt record at the end of a log is discarded.
+ *
+ * Log record: type (1 byte), key length, value length (-1 for null or
+ * remove), key bytes, value bytes (UTF-8), CRC32 of the preceding bytes.
+ * Keys follow PackedKeyTable: one byte per char, chars in 0..255. */
+public class DurableTable implements Closeable {
+
+    private static final byte PUT = 1;
+    private static final byte REMOVE = 2;
+    private static final int HEADER = 9;
+    private static final int MAX_FIELD = 1 << 26;
+    private static final int MAX_KEY = PackedKeyTable.MAX_KEY_LENGTH;
+    private static final int MAGIC = 0x48544231;
+    private static final String SNAPSHOT = "snapshot";
+
+    private final Path dir;
+    private final long syncMillis;
+    private final long compactBytes;
+
+    private final PackedKeyTable<String> table = new PackedKeyTable<String>();
+    private final Object lock = new Object();      // guards table, pending, appended
+    private final Object flushLock = new Object(); // held while writing the log
+    private final Object compactLock = new Object();
+    private final CRC32 crc = new CRC32();
+
+    private ByteBuffer pending = ByteBuffer.allocate(1 << 16);
+    private ByteBuffer spare = ByteBuffer.allocate(1 << 16);
+    private long appended;          // records appended so far
+    /* changes logged but not yet applied to table, in log order; only
+     * used with a sync interval of 0. Guarded by lock. */
+    private final ArrayDeque<Change> unapplied = new ArrayDeque<Change>();
+    private volatile long durable;  // records known to be on disk
+    private FileChannel log;        // current log, guarded by flushLock
+    private long gen;               // generation of the current log
+    private volatile long logBytes;
+
+    private final Thread flusher;
+    private volatile boolean closed;
+    private volatile IOException failure;
+
+    /* Called with "rotated", "written", "renamed" and "deleted" as compact
+     * passes each step, so tests can copy dir at every point a crash could
+     * leave it. */
+    volatile Consumer<String> compactHook;
+
+    /* A put or remove waiting for its record to reach disk */
+    private static final class Change {
+        final byte type;
+        final byte[] key;
+        final String value;
+        String old;
+
+        Change(byte type, byte[] key, String value) {
+            this.type = type;
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    /** Open the table stored in dir with synchronous commits and a 64 MB
+     * compaction threshold, creating dir if needed. */
+    public static DurableTable open(Path dir) throws IOException {
+        return new DurableTable(dir, 0, 64L << 20);
+    }
+
+    /** Open the table stored in dir, creating dir if needed.
+     * syncMillis is the durability window: 0 makes every put and remove
+     * wait for its fsync, a positive value syncs in the background that
+     * often. The log is compacted into a snapshot once it exceeds
+     * compactBytes.
+     * @throws IllegalArgumentException if syncMillis < 0 or
+     *         compactBytes <= 0 */
+    public DurableTable(Path dir, long syncMillis, long compactBytes)
+            throws IOException {
+        if (syncMillis < 0 || compactBytes <= 0) {
+            throw new IllegalArgumentException();
+        }
+        this.dir = dir;
+        this.syncMillis = syncMillis;
+        this.compactBytes = compactBytes;
+        Files.createDirectories(dir);
+        recover();
+
+        flusher = new Thread(this::runFlusher, "DurableTable-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /** Return the number of mappings in the table */
+    public int getSize() {
+        synchronized (lock) {
+            return table.getSize();
+        }
+    }
+
+    /** Return the value to which key is mapped, or null. */
+    public String get(CharSequence key) {
+        synchronized (lock) {
+            return table.get(key);
+        }
+    }
+
+    /** Return true if this table contains a mapping for key. */
+    public boolean containsKey(CharSequence key) {
+        synchronized (lock) {
+            return table.containsKey(key);
+        }
+    }
+
+    /** Associate value with key and log the change, returning the previous
+     * value or null.
+     * @throws IllegalArgumentException if key is longer than
+     *         PackedKeyTable.MAX_KEY_LENGTH chars or holds a char above 255,
+     *         or value is longer than 2^26 bytes in UTF-8; nothing is
+     *         changed or logged then.
+     * @throws IOException if the log could not be written, now or by an
+     *         earlier background sync. The table rejects writes after
+     *         that. */
+    public String put(CharSequence key, String value) throws IOException {
+        checkKey(key);
+        byte[] v = value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+        if (v != null && v.length > MAX_FIELD) {
+            throw new IllegalArgumentException("value longer than " + MAX_FIELD
+                    + " bytes");
+        }
+        return change(PUT, key, value, v);
+    }
+
+    /** Remove the mapping for key and log the change, returning the
+     * previous value or null.
+     * @throws IllegalArgumentException if key is longer than
+     *         PackedKeyTable.MAX_KEY_LENGTH chars or holds a char above 255
+     * @throws IOException if the log could not be written */
+    public String remove(CharSequence key) throws IOException {
+        checkKey(key);
+        return change(REMOVE, key, null, null);
+    }
+
+    /* Throw IllegalArgumentException unless key can be logged and stored:
+     * at most MAX_KEY chars, each in 0..255, since the log and
+     * PackedKeyTable keep one byte per char. */
+    private static void checkKey(CharSequence key) {
+        int n = key.length();
+        if (n > MAX_KEY) {
+            throw new IllegalArgumentException("key longer than " + MAX_KEY
+                    + " chars");
+        }
+        for (int i = 0; i < n; i++) {
+            if (key.charAt(i) > 0xFF) {
+                throw new IllegalArgumentException("key char above 255 at " + i);
+            }
+        }
+    }
+
+    /* Log a put or remove and apply it to table: at once with a background
+     * sync, or once it is on disk otherwise. Return the previous value. */
+    private String change(byte type, CharSequence key, String value, byte[] v)
+            throws IOException {
+        long seq;
+        Change c;
+        synchronized (lock) {
+            checkOpen();
+            if (syncMillis > 0) {
+                if (type == REMOVE && !table.containsKey(key)) return null;
+                append(type, key, v);
+                appended++;
+                return type == PUT ? table.put(key, value) : table.remove(key);
+            }
+            byte[] k = append(type, key, v);
+            seq = ++appended;
+            c = new Change(type, k, value);
+            unapplied.add(c);
+        }
+        awaitDurable(seq);
+        return c.old;
+    }
+
+    /** Force every change made so far to disk. */
+    public void sync() throws IOException {
+        awaitDurable(appendedCount());
+    }
+
+    /** Write the table to a new snapshot and delete the log it replaces.
+     * Writers are blocked only while the table is serialized in memory;
+     * the snapshot file is written without holding the table lock. */
+    public void compact() throws IOException {
+        synchronized (compactLock) {
+            byte[] snap;
+            long covered;
+            FileChannel old;
+            synchronized (flushLock) {
+                ByteBuffer out;
+                long upTo;
+                synchronized (lock) {
+                    checkOpen();
+                    upTo = appended;
+                    out = takePending();
+                }
+                // every change up to upTo is in table once it is on disk;
+                // later ones go to the new log, and with a background sync
+                // may also be in the snapshot, where replaying them again
+                // does no harm
+                writeOut(out, upTo);
+                synchronized (lock) {
+                    covered = gen;
+                    snap = serialize(covered);
+                }
+                old = log;
+                log = openLog(covered + 1, 0);
+                gen = covered + 1;
+                logBytes = 0;
+            }
+            old.close();
+            hook("rotated");
+
+            Path tmp = dir.resolve(SNAPSHOT + ".tmp");
+            try (FileChannel ch = FileChannel.open(tmp,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer b = ByteBuffer.wrap(snap);
+                while (b.hasRemaining()) ch.write(b);
+                ch.force(true);
+            }
+            hook("written");
+            Files.move(tmp, dir.resolve(SNAPSHOT),
+                    StandardCopyOption.ATOMIC_MOVE);
+            syncDir();
+            hook("renamed");
+            for (long g : logGenerations()) {
+                if (g <= covered) Files.deleteIfExists(logPath(g));
+            }
+            hook("deleted");
+        }
+    }
+
+    private void hook(String step) {
+        Consumer<String> h = compactHook;
+        if (h != null) h.accept(step);
+    }
+
+    /** Sync outstanding changes, stop the background thread and close the
+     * log. The table cannot be modified afterwards. A put that returned
+     * before close began is synced with the rest. */
+    public void close() throws IOException {
+        try {
+            synchronized (flushLock) {
+                ByteBuffer out;
+                long upTo;
+                synchronized (lock) {
+                    if (closed) return;
+                    closed = true;
+                    upTo = appended;
+                    out = takePending();
+                }
+                if (failure != null) {
+                    throw new IOException("log write failed", failure);
+                }
+                writeOut(out, upTo);
+            }
+        } finally {
+            flusher.interrupt();
+            synchronized (compactLock) {
+                synchronized (flushLock) {
+                    log.close();
+                }
+            }
+        }
+    }
+
+    private long appendedCount() {
+        synchronized (lock) {
+            return appended;
+        }
+    }
+
+    private void checkOpen() throws IOException {
+        if (failure != null) throw new IOException("log write failed", failure);
+        if (closed) throw new IOException("table is closed");
+    }
+
+    /* Encode a record with value bytes v into pending and return the key
+     * bytes. Caller holds lock. */
+    private byte[] append(byte type, CharSequence key, byte[] v) {
+        int klen = key.length();
+        int vlen = v == null ? 0 : v.length;
+        int n = HEADER + klen + vlen + 4;
+        if (pending.remaining() < n) {
+            int cap = Math.max(pending.capacity() * 2, pending.position() + n);
+            ByteBuffer b = ByteBuffer.allocate(cap);
+            pending.flip();
+            b.put(pending);
+            pending = b;
+        }
+        int start = pending.position();
+        pending.put(type).putInt(klen).putInt(v == null ? -1 : vlen);
+        for (int i = 0; i < klen; i++) pending.put((byte) key.charAt(i));
+        if (v != null) pending.put(v);
+        crc.reset();
+        crc.update(pending.array(), start, pending.position() - start);
+        pending.putInt((int) crc.getValue());
+        byte[] k = new byte[klen];
+        System.arraycopy(pending.array(), start + HEADER, k, 0, klen);
+        return k;
+    }
+
+    /* Swap out the pending records for writing. Caller holds lock. */
+    private ByteBuffer takePending() {
+        ByteBuffer out = pending;
+        pending = spare;
+        spare = out;
+        return out;
+    }
+
+    /* Make records 1..seq durable, writing every record appended so far if
+     * no other thread has already done so (group commit). Records appended
+     * before close are written by close, so only a failure is checked. */
+    private void awaitDurable(long seq) throws IOException {
+        synchronized (flushLock) {
+            if (durable >= seq) return;
+            if (failure != null) throw new IOException("log write failed", failure);
+            ByteBuffer out;
+            long upTo;
+            synchronized (lock) {
+                upTo = appended;
+                out = takePending();
+            }
+            writeOut(out, upTo);
+        }
+    }
+
+    /* Write out to the log and fsync it, then apply the changes it holds
+     * to table. Caller holds flushLock. */
+    private void writeOut(ByteBuffer out, long upTo) throws IOException {
+        out.flip();
+        try {
+            long n = logBytes;
+            while (out.hasRemaining()) n += log.write(out);
+            if (n != logBytes) log.force(false);
+            logBytes = n;
+        } catch (IOException e) {
+            failure = e;
+            throw e;
+        } finally {
+            out.clear();
+        }
+        synchronized (lock) {
+            for (long i = durable; i < upTo && !unapplied.isEmpty(); i++) {
+                Change c = unapplied.poll();
+                c.old = c.type == PUT ? table.put(c.key, 0, c.key.length, c.value)
+                        : table.remove(c.key, 0, c.key.length);
+            }
+        }
+        durable = upTo;
+    }
+
+    private void runFlusher() {
+        long period = syncMillis > 0 ? syncMillis : 100;
+        while (!closed) {
+            try {
+                Thread.sleep(period);
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                if (syncMillis > 0) sync();
+                if (logBytes > compactBytes) compact();
+            } catch (IOException e) {
+                if (!closed) failure = e;
+                return;
+            }
+        }
+    }
+
+    /* Serialize the table as a snapshot covering logs up to covered.
+     * Caller holds lock. */
+    private byte[] serialize(long covered) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(
+                table.getSize() * 16 + 64);
+        CheckedOutputStream checked = new CheckedOutputStream(bytes, new CRC32());
+        DataOutputStream out = new DataOutputStream(checked);
+        out.writeInt(MAGIC);
+        out.writeLong(covered);
+        out.writeInt(table.getSize());
+        IOException[] error = new IOException[1];
+        table.forEach((b, off, len, v) -> {
+            try {
+                out.writeInt(len);
+                out.write(b, off, len);
+                if (v == null) {
+                    out.writeInt(-1);
+                } else {
+                    byte[] vb = v.getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(vb.length);
+                    out.write(vb);
+                }
+            } catch (IOException e) {
+                error[0] = e;
+            }
+        });
+        if (error[0] != null) throw error[0];
+        out.flush();
+        out.writeLong(checked.getChecksum().getValue());
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /* Load the snapshot, replay the logs after it and open the last one. */
+    private void recover() throws IOException {
+        Files.deleteIfExists(dir.resolve(SNAPSHOT + ".tmp"));
+        long covered = -1;
+        Path snap = dir.resolve(SNAPSHOT);
+        if (Files.exists(snap)) covered = readSnapshot(snap);
+
+        List<Long> gens = logGenerations();
+        long valid = 0;
+        gen = covered + 1;
+        for (long g : gens) {
+            if (g <= covered) {
+                Files.deleteIfExists(logPath(g));
+                continue;
+            }
+            valid = replay(logPath(g));
+            gen = g;
+        }
+        log = openLog(gen, valid);
+        logBytes = valid;
+    }
+
+    private FileChannel openLog(long g, long valid) throws IOException {
+        FileChannel ch = FileChannel.open(logPath(g), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE);
+        ch.truncate(valid);
+        ch.position(valid);
+        return ch;
+    }
+
+    /* Load a snapshot into table and return the last log generation it
+     * covers. */
+    private long readSnapshot(Path snap) throws IOException {
+        CheckedInputStream checked = new CheckedInputStream(
+                new BufferedInputStream(Files.newInputStream(snap)), new CRC32());
+        try (DataInputStream in = new DataInputStream(checked)) {
+            if (in.readInt() != MAGIC) throw new IOException("not a snapshot: " + snap);
+            long covered = in.readLong();
+            int n = in.readInt();
+            for (int i = 0; i < n; i++) {
+                byte[] k = new byte[in.readInt()];
+                in.readFully(k);
+                int vlen = in.readInt();
+                String v = null;
+                if (vlen >= 0) {
+                    byte[] vb = new byte[vlen];
+                    in.readFully(vb);
+                    v = new String(vb, StandardCharsets.UTF_8);
+                }
+                table.put(k, 0, k.length, v);
+            }
+            long expected = checked.getChecksum().getValue();
+            if (in.readLong() != expected) {
+                throw new IOException("corrupt snapshot: " + snap);
+            }
+            return covered;
+        }
+    }
+
+    /* Apply the records of a log to table, stopping at the first torn or
+     * corrupt record. Return the length of the valid prefix. */
+    private long replay(Path p) throws IOException {
+        long valid = 0;
+        byte[] header = new byte[HEADER];
+        CRC32 check = new CRC32();
+        try (InputStream raw = new BufferedInputStream(Files.newInputStream(p))) {
+            DataInputStream in = new DataInputStream(raw);
+            while (true) {
+                in.readFully(header);
+                ByteBuffer h = ByteBuffer.wrap(header);
+                byte type = h.get();
+                int klen = h.getInt();
+                int vlen = h.getInt();
+                if ((type != PUT && type != REMOVE) || klen < 0
+                        || klen > MAX_KEY || vlen < -1 || vlen > MAX_FIELD) {
+                    break;
+                }
+                byte[] k = new byte[klen];
+                byte[] v = new byte[Math.max(vlen, 0)];
+                in.readFully(k);
+                in.readFully(v);
+                check.reset();
+                check.update(header);
+                check.update(k);
+                check.update(v);
+                if (in.readInt() != (int) check.getValue()) break;
+
+                if (type == PUT) {
+                    String s = vlen < 0 ? null : new String(v, StandardCharsets.UTF_8);
+                    table.put(k, 0, klen, s);
+                } else {
+                    table.remove(k, 0, klen);
+                }
+                valid += HEADER + klen + v.length + 4;
+            }
+        } catch (EOFException e) {
+            // torn record at the end of the log
+        }
+        return valid;
+    }
+
+    private List<Long> logGenerations() throws IOException {
+        List<Long> gens = new ArrayList<Long>();
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir, "wal-*.log")) {
+            for (Path p : ds) {
+                String name = p.getFileName().toString();
+                try {
+                    gens.add(Long.parseLong(name.substring(4, name.length() - 4)));
+                } catch (NumberFormatException e) {
+                    // not one of ours
+                }
+            }
+        }
+        Collections.sort(gens);
+        return gens;
+    }
+
+    private Path logPath(long g) {
+        return dir.resolve("wal-" + g + ".log");
+    }
+
+    /* Make the snapshot rename durable. Not every platform can open a
+     * directory for this, in which case the rename is left to the OS. */
+    private void syncDir() {
+        try (FileChannel ch = FileChannel.open(dir, StandardOpenOption.READ)) {
+            ch.force(true);
+        } catch (IOException e) {
+            // best effort
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package heap;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/** Sorts files of records too large to fit in memory. A file is a sequence
+ * of records written back to back with a StreamCodec. Sorting reads the
+ * input runLength records at a time, sorts each run in memory and writes it
+ * to a temporary file, then merges the runs fanIn at a time with a Heap
+ * keyed by each run's current head. The sort is not stable. */
+public final class ExternalSort<T extends Comparable<T>> {
+
+    /** The number of runs merged at once unless told otherwise */
+    public static final int DEFAULT_FAN_IN = 64;
+
+    /* bytes buffered per open file */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final StreamCodec<T> codec;
+    private final int runLength;
+    private final int fanIn;
+    private final Path tmpDir;
+
+    /** Constructor: a sorter that holds at most runLength records in memory
+     *  and writes its runs to tmpDir. */
+    public ExternalSort(StreamCodec<T> codec, int runLength, Path tmpDir) {
+        this(codec, runLength, DEFAULT_FAN_IN, tmpDir);
+    }
+
+    /** Constructor: a sorter that holds at most runLength records in memory,
+     *  merges at most fanIn runs at once, and writes its runs to tmpDir.
+     *  @throws IllegalArgumentException if runLength < 1 or fanIn < 2 */
+    public ExternalSort(StreamCodec<T> codec, int runLength, int fanIn,
+            Path tmpDir) {
+        if (runLength < 1 || fanIn < 2) throw new IllegalArgumentException();
+        this.codec = codec;
+        this.runLength = runLength;
+        this.fanIn = fanIn;
+        this.tmpDir = tmpDir;
+    }
+
+    /** Sort the records in input into output, replacing output if it
+     *  exists, and return the number of records. Temporary files are
+     *  deleted before returning, even if sorting fails. */
+    public long sort(Path input, Path output) throws IOException {
+        List<Path> created = new ArrayList<Path>();
+        try {
+            writeRuns(input, created);
+            List<Path> runs = new ArrayList<Path>(created);
+            while (runs.size() > fanIn) {
+                List<Path> next = new ArrayList<Path>();
+                for (int i = 0; i < runs.size(); i += fanIn) {
+                    List<Path> group = runs.subList(i, Math.min(i + fanIn, runs.size()));
+                    Path run = Files.createTempFile(tmpDir, "run", ".tmp");
+                    created.add(run);
+                    next.add(run);
+                    merge(group, run, WRITE);
+                    for (Path p : group) Files.delete(p);
+                }
+                runs = next;
+            }
+            return merge(runs, output, CREATE, TRUNCATE_EXISTING, WRITE);
+        } finally {
+            for (Path p : created) Files.deleteIfExists(p);
+        }
+    }
+
+    /** Merge the sorted files runs into output, replacing output if it
+     *  exists, and return the number of records written. The merge holds
+     *  one record per run in a Heap whose values are run numbers; taking
+     *  the next record from a run reuses that run's heap entry, so the
+     *  merge itself allocates only what the codec does. */
+    public long merge(List<Path> runs, Path output) throws IOException {
+        return merge(runs, output, CREATE, TRUNCATE_EXISTING, WRITE);
+    }
+
+    /* Merge runs into output opened with options. Runs are written to the
+     * empty files made by createTempFile without TRUNCATE_EXISTING: on
+     * some file systems truncating a file forces its old contents to disk
+     * when it is closed, which made every run cost a synchronous write. */
+    private long merge(List<Path> runs, Path output, OpenOption... options)
+            throws IOException {
+        int k = runs.size();
+        BufferedInputStream[] buf = new BufferedInputStream[k];
+        DataInputStream[] in = new DataInputStream[k];
+        Throwable failure = null;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(output, options), BUFFER_SIZE))) {
+            Heap<Integer, T> heads = new Heap<Integer, T>(k);
+            for (int i = 0; i < k; i++) {
+                buf[i] = new BufferedInputStream(Files.newInputStream(runs.get(i)),
+                        BUFFER_SIZE);
+                in[i] = new DataInputStream(buf[i]);
+                if (!atEnd(buf[i])) heads.add(i, codec.read(in[i]));
+            }
+            long n = 0;
+            while (heads.size() > 0) {
+                Integer r = heads.peek();
+                codec.write(out, heads.peekPriority());
+                n++;
+                if (atEnd(buf[r])) heads.poll();
+                else heads.replaceTop(r, codec.read(in[r]));
+            }
+            return n;
+        } catch (Throwable t) {
+            failure = t;
+            throw t;
+        } finally {
+            closeAll(in, failure);
+        }
+    }
+
+    /* Close every non-null stream in streams, even if some close() calls
+     * throw. If failure is not null, the exceptions are added to it as
+     * suppressed so that they do not hide it; otherwise the first is
+     * thrown, with any later ones suppressed. */
+    static void closeAll(Closeable[] streams, Throwable failure) throws IOException {
+        IOException first = null;
+        for (Closeable c : streams) {
+            if (c == null) continue;
+            try {
+                c.close();
+            } catch (IOException e) {
+                if (failure != null) failure.addSuppressed(e);
+                else if (first == null) first = e;
+                else first.addSuppressed(e);
+            }
+        }
+        if (first != null) throw first;
+    }
+
+    /* Split input into sorted runs of at most runLength records, adding the
+     * file for each run to runs as soon as it is created. */
+    private void writeRuns(Path input, List<Path> runs) throws IOException {
+        @SuppressWarnings("unchecked")
+        T[] buffer = (T[]) new Comparable<?>[runLength];
+        try (BufferedInputStream buf = new BufferedInputStream(
+                Files.newInputStream(input), BUFFER_SIZE)) {
+            DataInputStream in = new DataInputStream(buf);
+            while (!atEnd(buf)) {
+                int n = 0;
+                while (n < runLength && !atEnd(buf)) buffer[n++] = codec.read(in);
+                Arrays.sort(buffer, 0, n);
+                Path run = Files.createTempFile(tmpDir, "run", ".tmp");
+                runs.add(run);
+                try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                        Files.newOutputStream(run, WRITE), BUFFER_SIZE))) {
+                    for (int i = 0; i < n; i++) codec.write(out, buffer[i]);
+                }
+                Arrays.fill(buffer, 0, n, null);
+            }
+        }
+    }
+
+    /* Return true if in has no more bytes. */
+    private static boolean atEnd(BufferedInputStream in) throws IOException {
+        in.mark(1);
+        if (in.read() < 0) return true;
+        in.reset();
+        return false;
+    }
+}
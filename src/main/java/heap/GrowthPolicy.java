@@ -0,0 +1,38 @@
+package heap;
+
+/** Decides how much an AList's backing array grows when it runs out of
+ * room. */
+public interface GrowthPolicy {
+
+  /** The largest array most JVMs will allocate */
+  int MAX_CAPACITY = Integer.MAX_VALUE - 8;
+
+  /** Return the new capacity for a full array of the given capacity that
+   * must hold at least minCapacity elements. The caller clamps the result
+   * to at least minCapacity. */
+  int grow(int capacity, int minCapacity);
+
+  /** Double the capacity: few copies, up to half the array unused */
+  GrowthPolicy DOUBLING = (capacity, minCapacity) ->
+      scaled(capacity, minCapacity, 2.0);
+
+  /** Grow by half, as java.util.ArrayList does: more copies, less slack */
+  GrowthPolicy ONE_AND_A_HALF = (capacity, minCapacity) ->
+      scaled(capacity, minCapacity, 1.5);
+
+  /** Return a policy that grows by a fixed number of elements, so that very
+   * large lists do not reserve half their size again on each growth.
+   * @throws IllegalArgumentException if step < 1 */
+  static GrowthPolicy fixedStep(int step) {
+    if (step < 1) throw new IllegalArgumentException();
+    return (capacity, minCapacity) ->
+        (int) Math.min((long) capacity + step, MAX_CAPACITY);
+  }
+
+  /* Multiply capacity by factor until it reaches minCapacity. */
+  static int scaled(int capacity, int minCapacity, double factor) {
+    long cap = Math.max(capacity, 1);
+    while (cap < minCapacity) cap = Math.max(cap + 1, (long) (cap * factor));
+    return (int) Math.min(cap, MAX_CAPACITY);
+  }
+}
@@ -1,12 +1,23 @@
 package heap;
 
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.stream.IntStream;
+
 /** A hash table modeled after java.util.Map. It uses chaining for collision
  * resolution and grows its underlying storage by a factor of 2 when the load
- * factor exceeds 0.8. */
+ * factor exceeds 0.8. As in java.util.Map, a key matches a stored key that
+ * is the same object or equals() it, so keys must keep equals() consistent
+ * with hashCode(). */
 public class HashTable<K,V> {
 
     protected Pair[] buckets; // array of list nodes that store K,V pairs
     protected int size; // how many items currently in the map
+    protected HashTableMetrics metrics; // null unless metrics are enabled
+    protected boolean parallelResize; // split large resizes across threads
+
+    /* tables smaller than this always resize on the calling thread */
+    private static final int PARALLEL_RESIZE_MIN = 1 << 16;
 
 
     /** class Pair stores a key-value pair and a next pointer for chaining
@@ -58,15 +69,46 @@ public class HashTable<K,V> {
         return buckets.length;
     }
 
+    /** Set whether resizes of tables with at least 65536 entries are
+     * split across fork-join tasks, in the calling thread's pool or the
+     * common pool. Off by default. */
+    public void setParallelResize(boolean parallel) {
+        parallelResize = parallel;
+    }
+
+    /** Start collecting operation metrics for this table, if not already
+     * collecting, and return them. While disabled, the only cost to each
+     * operation is a null check. */
+    public HashTableMetrics enableMetrics() {
+        if (metrics == null) metrics = new HashTableMetrics(this);
+        return metrics;
+    }
+
+    /** Stop collecting operation metrics. */
+    public void disableMetrics() {
+        metrics = null;
+    }
+
+    /** Return the metrics being collected, or null if they are disabled. */
+    public HashTableMetrics getMetrics() {
+        return metrics;
+    }
+
     /** Return the value to which the specified key is mapped, or null if this
      * map contains no mapping for the key.
      * Runtime: average case O(1); worst case O(size) */
     public V get(K key) {
         Pair tmp = buckets[getHashCode(key)];
+        int n = 0;
         while (tmp != null) {
-            if (tmp.key == key) return tmp.value;
+            n++;
+            if (same(tmp.key, key)) {
+                if (metrics != null) metrics.lookup(n, true);
+                return tmp.value;
+            }
             tmp = tmp.next;
         }
+        if (metrics != null) metrics.lookup(n, false);
         return null;
     }
 
@@ -79,13 +121,17 @@ public class HashTable<K,V> {
     public V put(K key, V val) {
         int k = getHashCode(key);
         Pair tmp = buckets[k];
+        int n = 0;
 
         while (tmp != null) {
-            if (tmp.key == key) {   // key matches
+            n++;
+            if (same(tmp.key, key)) {   // key matches
+                if (metrics != null) metrics.put(n);
                 V v = tmp.value;
                 tmp.value = val;
                 return v;
             } else if (tmp.next == null) {  // next entry is null
+                if (metrics != null) metrics.put(n);
                 tmp.next = new Pair(key, val);
                 size++;
                 growIfNeeded();
@@ -95,6 +141,7 @@ public class HashTable<K,V> {
         }
 
         // buckets[k] is null
+        if (metrics != null) metrics.put(n);
         buckets[k] = new Pair(key, val);
         size++;
         growIfNeeded();
@@ -105,10 +152,16 @@ public class HashTable<K,V> {
      *  Runtime: average case O(1); worst case O(size) */
     public boolean containsKey(K key) {
         Pair tmp = buckets[getHashCode(key)];
+        int n = 0;
         while (tmp != null) {
-            if (tmp.key == key) return true;
+            n++;
+            if (same(tmp.key, key)) {
+                if (metrics != null) metrics.lookup(n, true);
+                return true;
+            }
             tmp = tmp.next;
         }
+        if (metrics != null) metrics.lookup(n, false);
         return false;
     }
 
@@ -122,16 +175,21 @@ public class HashTable<K,V> {
         V v;
 
         if (tmp == null) {  // key doesn't exist
+            if (metrics != null) metrics.remove(0);
             return null;
-        } else if (tmp.key == key) {    // key is first pair
+        } else if (same(tmp.key, key)) {    // key is first pair
+            if (metrics != null) metrics.remove(1);
             v = tmp.value;
             if (tmp.next == null) buckets[k] = null;
             else buckets[k] = tmp.next;
             size--;
             return v;
         } else {    // key might be further down
+            int n = 1;
             while (tmp.next != null) {
-                if (tmp.next.key == key) {
+                n++;
+                if (same(tmp.next.key, key)) {
+                    if (metrics != null) metrics.remove(n);
                     v = tmp.next.value;
                     tmp.next = tmp.next.next;
                     size--;
@@ -139,39 +197,156 @@ public class HashTable<K,V> {
                 }
                 tmp = tmp.next;
             }
+            if (metrics != null) metrics.remove(n);
             return null;
         }
     }
 
 
+    /* Fill this table, which must be empty, with keys[i] -> values[i] for
+     * every i, using fork-join tasks in the calling thread's pool (or the
+     * common pool). The table is first sized so it will not grow. The keys'
+     * bucket indexes are computed in parallel, the key indexes are then
+     * grouped by bucket range with a parallel counting sort, and each
+     * range is filled by its own task, so no two tasks touch the same
+     * chain.
+     * @throws IllegalStateException if the table is not empty.
+     * @throws IllegalArgumentException if two keys are equal; the table is
+     *         left empty. */
+    void bulkLoad(K[] keys, V[] values) {
+        if (size != 0) throw new IllegalStateException("bulkLoad needs an empty table");
+        int n = keys.length;
+        long needed = n * 5L / 4 + 1;
+        if (needed > buckets.length) {
+            buckets = createBucketArray((int) Math.min(needed, Integer.MAX_VALUE - 8));
+        }
+        int cap = buckets.length;
+        int parts = 4 * (ForkJoinTask.inForkJoinPool()
+                ? ForkJoinTask.getPool().getParallelism()
+                : ForkJoinPool.getCommonPoolParallelism());
+        int chunk = (n + parts - 1) / parts;
+
+        // bucket of each key, and how many keys each chunk sends to each part
+        int[] bucket = new int[n];
+        int[][] counts = new int[parts][parts];
+        IntStream.range(0, parts).parallel().forEach(c -> {
+            for (int i = c * chunk, end = Math.min(n, i + chunk); i < end; i++) {
+                bucket[i] = getHashCode(keys[i]);
+                counts[c][(int) ((long) bucket[i] * parts / cap)]++;
+            }
+        });
+
+        // start[p] is where part p's key indexes go in order; counts[c][p]
+        // becomes where chunk c writes its first one
+        int[] start = new int[parts + 1];
+        for (int p = 0, pos = 0; p < parts; p++) {
+            start[p] = pos;
+            for (int c = 0; c < parts; c++) {
+                int k = counts[c][p];
+                counts[c][p] = pos;
+                pos += k;
+            }
+        }
+        start[parts] = n;
+        int[] order = new int[n];
+        IntStream.range(0, parts).parallel().forEach(c -> {
+            int[] next = counts[c];
+            for (int i = c * chunk, end = Math.min(n, i + chunk); i < end; i++) {
+                order[next[(int) ((long) bucket[i] * parts / cap)]++] = i;
+            }
+        });
+
+        // a part that meets a duplicate records it and stops; the table is
+        // only cleared once forEach has returned and no task is still
+        // writing to it
+        Object[] duplicate = new Object[parts];
+        IntStream.range(0, parts).parallel().forEach(p -> {
+            for (int j = start[p]; j < start[p + 1]; j++) {
+                int i = order[j];
+                int b = bucket[i];
+                for (Pair q = buckets[b]; q != null; q = q.next) {
+                    if (same(q.key, keys[i])) {
+                        duplicate[p] = keys[i];
+                        return;
+                    }
+                }
+                buckets[b] = new Pair(keys[i], values[i], buckets[b]);
+            }
+        });
+        for (Object k : duplicate) {
+            if (k != null) {
+                buckets = createBucketArray(cap);
+                throw new IllegalArgumentException("duplicate key: " + k);
+            }
+        }
+        size = n;
+    }
+
     // suggested helper method:
     /* check the load factor; if it exceeds 0.8, double the array size
-     * (capacity) and rehash values from the old array to the new array */
+     * (capacity) and move the pairs from the old array to the new array */
     private void growIfNeeded() {
         double n = (double) size / (double) buckets.length;
         if (n > 0.8) {
-            int i = size;   // done to avoid issues when repopulating the array
-            size = 0;      // temporarily lower size to avoid creating a larger array
-            Pair[] tmp = buckets;
-            buckets = createBucketArray(buckets.length * 2);
-
-            for (Pair p : tmp) {
-                while (p != null) {
-                    Pair p2 = p.next;   // store references
-                    p.next = null;      // remove any references
-                    put(p.key, p.value);    // add to new buckets
-                    p = p2;
-                }
+            long start = metrics == null ? 0 : System.nanoTime();
+            Pair[] old = buckets;
+            Pair[] grown = createBucketArray(old.length * 2);
+            if (parallelResize && size >= PARALLEL_RESIZE_MIN) {
+                // tasks own disjoint old ranges, and so disjoint new ones
+                int parts = 4 * (ForkJoinTask.inForkJoinPool()
+                        ? ForkJoinTask.getPool().getParallelism()
+                        : ForkJoinPool.getCommonPoolParallelism());
+                int chunk = (old.length + parts - 1) / parts;
+                IntStream.range(0, parts).parallel().forEach(t -> relink(old, grown,
+                        t * chunk, Math.min(old.length, (t + 1) * chunk)));
+            } else {
+                relink(old, grown, 0, old.length);
             }
-            size = i; // reset to actual size
+            buckets = grown;
+            if (metrics != null) metrics.resize(System.nanoTime() - start);
         }
     }
 
+    /* Move the pairs in old[lo..hi-1] to grown, which is twice as long,
+     * without allocating. A key in old bucket b has |hash| % old.length
+     * == b, so it lands in grown bucket b or b + old.length: moves from
+     * disjoint old ranges never touch the same new bucket. */
+    private void relink(Pair[] old, Pair[] grown, int lo, int hi) {
+        for (int b = lo; b < hi; b++) {
+            Pair p = old[b];
+            while (p != null) {
+                Pair next = p.next;
+                int k = Math.abs(p.key.hashCode()) % grown.length;
+                p.next = grown[k];
+                grown[k] = p;
+                p = next;
+            }
+        }
+    }
+
+    /* returns true if a stored key matches key: the same object, or an equal
+     * one (for example, a separately boxed Integer or a restored value) */
+    private boolean same(K stored, K key) {
+        return stored == key || stored.equals(key);
+    }
+
     /* returns hashCode of a key */
     private int getHashCode(K key) {
         return Math.abs(key.hashCode()) % buckets.length;
     }
 
+    /* Return how many buckets hold chains of length i, for i in
+     * 0..n-2; element n-1 counts every longer chain. */
+    long[] chainLengthHistogram(int n) {
+        long[] h = new long[n];
+        for (Pair p : buckets) {
+            int len = 0;
+            for (; p != null; p = p.next) len++;
+            h[Math.min(len, n - 1)]++;
+        }
+        return h;
+    }
+
     /* useful method for debugging - prints a representation of the current
      * state of the hash table by traversing each bucket and printing the
      * key-value pairs in linked-list representation */
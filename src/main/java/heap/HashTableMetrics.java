@@ -0,0 +1,147 @@
+package heap;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/** Operation counters for one HashTable, collected only while enabled with
+ * HashTable.enableMetrics(). Like the table itself, the counters are not
+ * synchronized: a reader on another thread, such as a JMX client, may see
+ * slightly stale values. */
+public class HashTableMetrics implements HashTableMetricsMBean {
+
+    /** Number of histogram buckets; the last one counts everything larger */
+    public static final int HISTOGRAM_SIZE = 16;
+
+    private final HashTable<?, ?> table;
+    private long lookups;
+    private long hits;
+    private long puts;
+    private long removes;
+    private long probes;
+    private long[] probeHistogram = new long[HISTOGRAM_SIZE];
+    private long resizes;
+    private long resizeNanos;
+    private long maxResizeNanos;
+
+    /** constructor: metrics for table */
+    HashTableMetrics(HashTable<?, ?> table) {
+        this.table = table;
+    }
+
+    /* Record a get or containsKey that visited n nodes. */
+    void lookup(int n, boolean hit) {
+        lookups++;
+        if (hit) hits++;
+        probe(n);
+    }
+
+    /* Record a put that visited n nodes. */
+    void put(int n) {
+        puts++;
+        probe(n);
+    }
+
+    /* Record a remove that visited n nodes. */
+    void remove(int n) {
+        removes++;
+        probe(n);
+    }
+
+    private void probe(int n) {
+        probes += n;
+        probeHistogram[Math.min(n, HISTOGRAM_SIZE - 1)]++;
+    }
+
+    /* Record a growth of the table that took nanos nanoseconds. */
+    void resize(long nanos) {
+        resizes++;
+        resizeNanos += nanos;
+        maxResizeNanos = Math.max(maxResizeNanos, nanos);
+    }
+
+    /** Register these metrics with the platform MBean server under
+     * heap:type=HashTable,name=name and return the name used. */
+    public ObjectName register(String name) throws JMException {
+        ObjectName on = new ObjectName("heap:type=HashTable,name="
+                + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, on);
+        return on;
+    }
+
+    public long getLookups() {
+        return lookups;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return lookups - hits;
+    }
+
+    public double getHitRatio() {
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    public long getPuts() {
+        return puts;
+    }
+
+    public long getRemoves() {
+        return removes;
+    }
+
+    public double getMeanProbes() {
+        long ops = lookups + puts + removes;
+        return ops == 0 ? 0 : (double) probes / ops;
+    }
+
+    public long[] getProbeHistogram() {
+        return probeHistogram.clone();
+    }
+
+    public long[] getChainLengthHistogram() {
+        return table.chainLengthHistogram(HISTOGRAM_SIZE);
+    }
+
+    public long getResizes() {
+        return resizes;
+    }
+
+    public long getResizeNanos() {
+        return resizeNanos;
+    }
+
+    public long getMaxResizeNanos() {
+        return maxResizeNanos;
+    }
+
+    public int getSize() {
+        return table.getSize();
+    }
+
+    public int getCapacity() {
+        return table.getCapacity();
+    }
+
+    public double getLoadFactor() {
+        return (double) table.getSize() / table.getCapacity();
+    }
+
+    public void reset() {
+        lookups = hits = puts = removes = probes = 0;
+        resizes = resizeNanos = maxResizeNanos = 0;
+        probeHistogram = new long[HISTOGRAM_SIZE];
+    }
+
+    /** returns a one-line summary of the counters */
+    public String toString() {
+        return "lookups=" + lookups + " hitRatio=" + getHitRatio()
+                + " puts=" + puts + " removes=" + removes
+                + " meanProbes=" + getMeanProbes() + " resizes=" + resizes
+                + " resizeNanos=" + resizeNanos;
+    }
+}
@@ -0,0 +1,55 @@
+package heap;
+
+/** The JMX view of a HashTable's HashTableMetrics. */
+public interface HashTableMetricsMBean {
+
+    /** Return the number of get and containsKey calls */
+    long getLookups();
+
+    /** Return the number of lookups that found their key */
+    long getHits();
+
+    /** Return the number of lookups that did not find their key */
+    long getMisses();
+
+    /** Return hits / lookups, or 0 if there were no lookups */
+    double getHitRatio();
+
+    /** Return the number of put calls */
+    long getPuts();
+
+    /** Return the number of remove calls */
+    long getRemoves();
+
+    /** Return the mean number of chain nodes visited per operation */
+    double getMeanProbes();
+
+    /** Return how many operations visited i chain nodes, for each i; the
+     * last element counts every operation that visited more */
+    long[] getProbeHistogram();
+
+    /** Return how many buckets currently hold chains of length i, for each
+     * i; the last element counts every longer chain */
+    long[] getChainLengthHistogram();
+
+    /** Return how many times the table grew */
+    long getResizes();
+
+    /** Return the total time spent growing the table, in nanoseconds */
+    long getResizeNanos();
+
+    /** Return the longest time a single growth took, in nanoseconds */
+    long getMaxResizeNanos();
+
+    /** Return the number of mappings in the table */
+    int getSize();
+
+    /** Return the capacity of the table */
+    int getCapacity();
+
+    /** Return size / capacity */
+    double getLoadFactor();
+
+    /** Set every counter back to 0 */
+    void reset();
+}
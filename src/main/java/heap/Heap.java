@@ -4,7 +4,15 @@ package heap;
  * Date: 3/1/19
  * Purpose: Learn heap/hashTable implementation
  */
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.BiConsumer;
+import java.util.stream.IntStream;
 
 /** An instance is a min-heap of distinct values of type V with
  *  priorities of type P. Since it's a min-heap, the value
@@ -38,6 +46,14 @@ public final class Heap<V, P extends Comparable<P>> {
      */
     protected AList<Entry> c;
     protected HashTable<V, Integer> map;
+    protected HeapMetrics metrics; // null unless metrics are enabled
+
+    /* identifies a stream written by writeTo */
+    private static final int SNAPSHOT_MAGIC = 0x48454150;
+
+    /* readFrom presizes for at most this many entries before it has read
+     * them, so a corrupt size cannot allocate more than the stream holds */
+    private static final int SNAPSHOT_PRESIZE = 1 << 16;
 
     /** Constructor: an empty heap with capacity 10. */
     public Heap() {
@@ -45,6 +61,130 @@ public final class Heap<V, P extends Comparable<P>> {
         map = new HashTable<V, Integer>();
     }
 
+    /** Constructor: an empty heap that holds capacity values without
+     *  growing c or rehashing map. */
+    public Heap(int capacity) {
+        c = new AList<Entry>(capacity);
+        map = new HashTable<V, Integer>(capacity * 5 / 4 + 1);
+    }
+
+    /** Return a heap of values[i] with priorities[i] for every i, built
+     *  bottom-up in O(n) time.
+     *  @throws IllegalArgumentException if the arrays differ in length or
+     *          values holds duplicates. */
+    public static <V, P extends Comparable<P>> Heap<V, P> of(V[] values,
+            P[] priorities) throws IllegalArgumentException {
+        Heap<V, P> h = new Heap<V, P>(values.length);
+        Heap<V, P>.Entry[] a = h.entries(values, priorities);
+        h.heapify(a, 0);
+        h.c.appendAll(a);
+        for (int i = 0; i < a.length; i++) {
+            if (h.map.put(a[i].value, i) != null) {
+                throw new IllegalArgumentException("duplicate value: " + a[i].value);
+            }
+        }
+        return h;
+    }
+
+    /** Like of, but using fork-join tasks in the calling thread's pool, or
+     *  the common pool: the subtrees below the top few levels are heapified
+     *  concurrently before the top levels are finished, and map is filled
+     *  with a partitioned parallel load. Inputs too small to gain from
+     *  this are built sequentially.
+     *  @throws IllegalArgumentException if the arrays differ in length or
+     *          values holds duplicates. */
+    public static <V, P extends Comparable<P>> Heap<V, P> parallelOf(V[] values,
+            P[] priorities) throws IllegalArgumentException {
+        int n = values.length;
+        if (n < PARALLEL_THRESHOLD) return of(values, priorities);
+        Heap<V, P> h = new Heap<V, P>(n);
+        Heap<V, P>.Entry[] a = h.entries(values, priorities);
+
+        // one task per subtree at the first level with 8 per thread
+        int threads = ForkJoinTask.inForkJoinPool()
+                ? ForkJoinTask.getPool().getParallelism()
+                : ForkJoinPool.getCommonPoolParallelism();
+        int level = 32 - Integer.numberOfLeadingZeros(8 * threads - 1);
+        int cutoff = Math.min((1 << level) - 1, n / 2);
+        if (ForkJoinTask.inForkJoinPool()) h.new Heapify(a, 0, cutoff).invoke();
+        else ForkJoinPool.commonPool().invoke(h.new Heapify(a, 0, cutoff));
+
+        h.c.appendAll(a);
+        @SuppressWarnings("unchecked")
+        V[] keys = (V[]) new Object[n];
+        Integer[] index = new Integer[n];
+        IntStream.range(0, n).parallel().forEach(i -> {
+            keys[i] = a[i].value;
+            index[i] = i;
+        });
+        h.map.bulkLoad(keys, index);
+        return h;
+    }
+
+    /* Inputs below this size are built sequentially by parallelOf. */
+    private static final int PARALLEL_THRESHOLD = 1 << 15;
+
+    /* Return an array of entries for values and priorities. */
+    private Entry[] entries(V[] values, P[] priorities) {
+        if (values.length != priorities.length) throw new IllegalArgumentException();
+        @SuppressWarnings("unchecked")
+        Entry[] a = (Entry[]) new Heap<?, ?>.Entry[values.length];
+        for (int i = 0; i < a.length; i++) a[i] = new Entry(values[i], priorities[i]);
+        return a;
+    }
+
+    /* Heapify the subtree of a rooted at k: each node is sifted down after
+     * both of its subtrees are heaps. */
+    private void heapify(Entry[] a, int k) {
+        if (k >= a.length / 2) return;  // a leaf
+        heapify(a, 2 * k + 1);
+        heapify(a, 2 * k + 2);
+        siftDown(a, k);
+    }
+
+    /* Sift a[k] down within a, which is not yet in c, choosing the right
+     * child on ties as bubbleDown does. */
+    private void siftDown(Entry[] a, int k) {
+        Entry e = a[k];
+        int n = a.length;
+        while (2 * k + 1 < n) {
+            int child = 2 * k + 1;
+            if (child + 1 < n
+                    && a[child].priority.compareTo(a[child + 1].priority) >= 0) {
+                child++;
+            }
+            if (e.priority.compareTo(a[child].priority) <= 0) break;
+            a[k] = a[child];
+            k = child;
+        }
+        a[k] = e;
+    }
+
+    /* Heapifies the subtree rooted at k, forking for subtrees rooted above
+     * cutoff and heapifying the rest sequentially. */
+    private final class Heapify extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final Entry[] a;
+        private final int k;
+        private final int cutoff;
+
+        Heapify(Entry[] a, int k, int cutoff) {
+            this.a = a;
+            this.k = k;
+            this.cutoff = cutoff;
+        }
+
+        protected void compute() {
+            if (k >= cutoff) {
+                heapify(a, k);
+            } else {
+                invokeAll(new Heapify(a, 2 * k + 1, cutoff),
+                        new Heapify(a, 2 * k + 2, cutoff));
+                siftDown(a, k);
+            }
+        }
+    }
+
     /** An Entry contains a value and a priority. */
     class Entry {
         public V value;
@@ -61,6 +201,24 @@ public final class Heap<V, P extends Comparable<P>> {
         }
     }
 
+    /** Start collecting work counters and latencies for this heap, if not
+     *  already collecting, and return them. While disabled, the only cost
+     *  to each operation is a null check. */
+    public HeapMetrics enableMetrics() {
+        if (metrics == null) metrics = new HeapMetrics(this);
+        return metrics;
+    }
+
+    /** Stop collecting metrics. */
+    public void disableMetrics() {
+        metrics = null;
+    }
+
+    /** Return the metrics being collected, or null if they are disabled. */
+    public HeapMetrics getMetrics() {
+        return metrics;
+    }
+
     /** Add v with priority p to the heap.
      *  The expected time is logarithmic and the worst-case time is linear
      *  in the size of the heap.
@@ -68,10 +226,13 @@ public final class Heap<V, P extends Comparable<P>> {
      *  @throws IllegalArgumentException if v is already in the heap.*/
     public void add(V v, P p) throws IllegalArgumentException {
         if (map.containsKey(v)) throw new IllegalArgumentException();
+        long start = metrics == null ? 0 : System.nanoTime();
         c.append(new Entry(v, p));
         map.put(v, c.size - 1);
         bubbleUp(c.size - 1);
-
+        if (metrics != null) {
+            metrics.operation(HeapMetrics.ADD, System.nanoTime() - start);
+        }
     }
 
     /** Return the number of values in this heap.
@@ -94,11 +255,25 @@ public final class Heap<V, P extends Comparable<P>> {
      *  Precondition: Priority of every c[i] >= its parent's priority
      *                except perhaps for c[k] */
     protected void bubbleUp(int k) {
-        int n = (k - 1) / 2;
-        if (n < 0) return; // there is no parent
-        if (c.get(k).priority.compareTo(c.get(n).priority) < 0) {
-            swap(k, n);
-            bubbleUp(n);
+        // Move parents down into the hole left by c[k] and store it once
+        // at the end, so each level costs one map update instead of two.
+        Entry e = c.get(k);
+        int start = k;
+        while (k > 0) {
+            int n = (k - 1) / 2;
+            Entry parent = c.get(n);
+            if (compare(e.priority, parent.priority) >= 0) break;
+            c.put(k, parent);
+            map.put(parent.value, k);
+            if (metrics != null) {
+                metrics.move();
+                metrics.movedUp();
+            }
+            k = n;
+        }
+        if (k != start) {
+            c.put(k, e);
+            map.put(e.value, k);
         }
     }
 
@@ -110,22 +285,54 @@ public final class Heap<V, P extends Comparable<P>> {
         return c.get(0).value;
     }
 
+    /** Return the lowest priority in this heap. Do not change the heap.
+     *  This operation takes constant time.
+     *  @throws NoSuchElementException if the heap is empty. */
+    public P peekPriority() throws NoSuchElementException {
+        if (c.size == 0) throw new NoSuchElementException();
+        return c.get(0).priority;
+    }
+
+    /** Remove and return the value with lowest priority, and add v with
+     *  priority p, sifting once instead of once per operation. If v is the
+     *  value being removed, its entry is reused and map is not touched.
+     *  @throws NoSuchElementException if the heap is empty.
+     *  @throws IllegalArgumentException if v is in the heap and is not the
+     *          value being removed. */
+    public V replaceTop(V v, P p)
+            throws NoSuchElementException, IllegalArgumentException {
+        if (c.size == 0) throw new NoSuchElementException();
+        Entry e = c.get(0);
+        V top = e.value;
+        if (top == v || top.equals(v)) {
+            e.priority = p;
+        } else {
+            if (map.containsKey(v)) throw new IllegalArgumentException();
+            map.remove(top);
+            c.put(0, new Entry(v, p));
+            map.put(v, 0);
+        }
+        bubbleDown(0);
+        return top;
+    }
+
     /** Remove and return the element of this heap with lowest priority.
      *  The expected time is logarithmic and the worst-case time is linear
      *  in the size of the heap.
      *  @throws NoSuchElementException if the heap is empty. */
     public V poll() throws NoSuchElementException {
         if (c.size == 0) throw new NoSuchElementException();
+        long start = metrics == null ? 0 : System.nanoTime();
         V v = c.get(0).value;
-        c.put(0, c.get(c.size - 1));    // replace first element
-        c.put(c.size - 1, null);    // remove last element
-        c.size--;
-        bubbleDown(0);
-
+        Entry last = c.pop();   // remove last element
         map.remove(v);
-        for (int i = 0; i < map.size; i++) {
-            V v2 = c.get(i).value;
-            map.put(v2, i);
+        if (c.size > 0) {   // replace first element
+            c.put(0, last);
+            map.put(last.value, 0);
+            bubbleDown(0);
+        }
+        if (metrics != null) {
+            metrics.operation(HeapMetrics.POLL, System.nanoTime() - start);
         }
         return v;
     }
@@ -137,13 +344,24 @@ public final class Heap<V, P extends Comparable<P>> {
      *  Precondition: Each c[i]'s priority <= its childrens' priorities
      *                except perhaps for c[k] */
     protected void bubbleDown(int k) {
-        if (k * 2 + 1 > c.size - 1) return; // there is no child
-        int n = smallerChild(k);
-        P a = c.get(k).priority;
-        P b = c.get(n).priority;
-        if (a.compareTo(b) > 0) {
-            swap(k, n);
-            bubbleDown(n);
+        // Like bubbleUp, move children up into the hole left by c[k].
+        Entry e = c.get(k);
+        int start = k;
+        while (k * 2 + 1 < c.size) {
+            int n = smallerChild(k);
+            Entry child = c.get(n);
+            if (compare(e.priority, child.priority) <= 0) break;
+            c.put(k, child);
+            map.put(child.value, k);
+            if (metrics != null) {
+                metrics.move();
+                metrics.movedDown();
+            }
+            k = n;
+        }
+        if (k != start) {
+            c.put(k, e);
+            map.put(e.value, k);
         }
     }
 
@@ -153,16 +371,163 @@ public final class Heap<V, P extends Comparable<P>> {
         return map.containsKey(v);
     }
 
+    /** Return the priority of value v, or null if v is not in the heap.
+     *  The average case runtime is O(1). */
+    public P priorityOf(V v) {
+        Integer i = map.get(v);
+        return i == null ? null : c.get(i).priority;
+    }
+
+    /** Call action with each value in the heap and its priority, in no
+     *  particular order. action must not change the heap. */
+    public void forEach(BiConsumer<? super V, ? super P> action) {
+        for (int i = 0; i < c.size; i++) {
+            Entry e = c.get(i);
+            action.accept(e.value, e.priority);
+        }
+    }
+
     /** Change the priority of value v to p.
      *  The expected time is logarithmic and the worst-case time is linear
      *  in the size of the heap.
      *  @throws IllegalArgumentException if v is not in the heap. */
     public void changePriority(V v, P p) throws IllegalArgumentException {
         if (!map.containsKey(v)) throw new IllegalArgumentException();
+        long start = metrics == null ? 0 : System.nanoTime();
         int i = map.get(v);
         c.put(i, new Entry(v, p));
         bubbleUp(i);
         bubbleDown(i);  // no need to change i since it will only go up or down
+        if (metrics != null) {
+            metrics.operation(HeapMetrics.CHANGE_PRIORITY,
+                    System.nanoTime() - start);
+        }
+    }
+
+    /** Remove v from the heap and return its priority. The last element
+     *  moves into v's slot and is sifted up or down from there.
+     *  The expected time is logarithmic and the worst-case time is linear
+     *  in the size of the heap.
+     *  @throws IllegalArgumentException if v is not in the heap. */
+    public P remove(V v) throws IllegalArgumentException {
+        Integer index = map.remove(v);
+        if (index == null) throw new IllegalArgumentException();
+        long start = metrics == null ? 0 : System.nanoTime();
+        int i = index;
+        P p = c.get(i).priority;
+        Entry last = c.pop();
+        if (i < c.size) {   // v was not the last element
+            c.put(i, last);
+            map.put(last.value, i);
+            bubbleUp(i);
+            if (c.get(i) == last) bubbleDown(i);
+        }
+        if (metrics != null) {
+            metrics.operation(HeapMetrics.REMOVE, System.nanoTime() - start);
+        }
+        return p;
+    }
+
+    /** Move every value of other into this heap, leaving other empty.
+     *  other's entries are appended to c with one bulk copy and added to
+     *  map, then order is restored by sifting the new entries up or, when
+     *  that would cost more, by heapifying all of c bottom-up in O(n + m)
+     *  time.
+     *  @throws IllegalArgumentException if other is this heap or the two
+     *          heaps share a value; neither heap is changed then. */
+    public void meld(Heap<V, P> other) throws IllegalArgumentException {
+        checkDisjoint(other);
+        int n = c.size;
+        c.appendAll(other.c);
+        other.c.resize(0);
+        other.map = new HashTable<V, Integer>();
+        restoreOrder(n);
+    }
+
+    /** Add every value of other to this heap with the same priority,
+     *  leaving other unchanged. Order is restored as in meld.
+     *  @throws IllegalArgumentException if other is this heap or the two
+     *          heaps share a value; neither heap is changed then. */
+    public void addAllFrom(Heap<V, P> other) throws IllegalArgumentException {
+        checkDisjoint(other);
+        int n = c.size;
+        c.ensureCapacity(n + other.c.size);
+        for (int i = 0; i < other.c.size; i++) {
+            Entry e = other.c.get(i);
+            c.append(new Entry(e.value, e.priority));
+        }
+        restoreOrder(n);
+    }
+
+    /* Throw IllegalArgumentException if other is this heap or shares a
+     * value with it. */
+    private void checkDisjoint(Heap<V, P> other) {
+        if (other == this) throw new IllegalArgumentException();
+        for (int i = 0; i < other.c.size; i++) {
+            if (map.containsKey(other.c.get(i).value)) {
+                throw new IllegalArgumentException("duplicate value: "
+                        + other.c.get(i).value);
+            }
+        }
+    }
+
+    /* Index c[n..] in map and restore the heap property, given that it
+     * holds for c[0..n-1]. m appended entries cost about m log(n + m)
+     * sifting up and 2(n + m) heapifying, so take the cheaper. */
+    private void restoreOrder(int n) {
+        int size = c.size;
+        for (int i = n; i < size; i++) map.put(c.get(i).value, i);
+        int m = size - n;
+        int log = 32 - Integer.numberOfLeadingZeros(size);
+        if ((long) m * log <= 2L * size) {
+            for (int i = n; i < size; i++) bubbleUp(i);
+        } else {
+            for (int i = size / 2 - 1; i >= 0; i--) bubbleDown(i);
+        }
+    }
+
+    /** Write this heap to out: the number of values, then each value and
+     *  priority in the order of c, so that readFrom can restore the heap
+     *  without re-sifting. */
+    public void writeTo(DataOutput out, StreamCodec<? super V> vc,
+            StreamCodec<? super P> pc) throws IOException {
+        out.writeInt(SNAPSHOT_MAGIC);
+        out.writeInt(c.size);
+        for (int i = 0; i < c.size; i++) {
+            Entry e = c.get(i);
+            vc.write(out, e.value);
+            pc.write(out, e.priority);
+        }
+    }
+
+    /** Read a heap written by writeTo. The entries are loaded in heap
+     *  order into c, and map is filled in the same pass, so this takes
+     *  O(n) time with no sifting. c and map are presized for snapshots of
+     *  up to 65536 values, and grow as usual past that.
+     *  @throws IOException if in does not hold a heap snapshot, or holds
+     *          duplicate values or entries out of heap order. */
+    public static <V, P extends Comparable<P>> Heap<V, P> readFrom(
+            DataInput in, StreamCodec<V> vc, StreamCodec<P> pc)
+            throws IOException {
+        if (in.readInt() != SNAPSHOT_MAGIC) {
+            throw new IOException("not a heap snapshot");
+        }
+        int n = in.readInt();
+        if (n < 0) throw new IOException("negative heap size: " + n);
+        Heap<V, P> h = new Heap<V, P>(Math.min(n, SNAPSHOT_PRESIZE));
+        for (int i = 0; i < n; i++) {
+            V v = vc.read(in);
+            P p = pc.read(in);
+            if (h.map.containsKey(v)) {
+                throw new IOException("duplicate value in snapshot: " + v);
+            }
+            if (i > 0 && p.compareTo(h.c.get((i - 1) / 2).priority) < 0) {
+                throw new IOException("snapshot is not in heap order at " + i);
+            }
+            h.c.append(h.new Entry(v, p));
+            h.map.put(v, i);
+        }
+        return h;
     }
 
     // Recommended helper method spec:
@@ -171,13 +536,15 @@ public final class Heap<V, P extends Comparable<P>> {
      * Precondition: at least one child exists.*/
     private int smallerChild(int k) {
         int a = 2 * k + 1, b = 2 * k + 2;
-        P l = c.get(a).priority, r;
-        try {
-            r = c.get(b).priority;
-        } catch (IndexOutOfBoundsException e) {
-            return a;
-        }
-        return (l.compareTo(r) < 0) ? a : b;
+        if (b >= c.size) return a;
+        return (compare(c.get(a).priority, c.get(b).priority) < 0) ? a : b;
+    }
+
+    /* Compare two priorities, counting the comparison if metrics are
+     * enabled. */
+    private int compare(P a, P b) {
+        if (metrics != null) metrics.compare();
+        return a.compareTo(b);
     }
 
 }
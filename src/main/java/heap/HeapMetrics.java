@@ -0,0 +1,139 @@
+package heap;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/** Work counters and latency histograms for one Heap, collected only while
+ * enabled with Heap.enableMetrics(). Like the heap itself, the counters are
+ * not synchronized: a reader on another thread, such as a JMX client, may
+ * see slightly stale values. */
+public class HeapMetrics implements HeapMetricsMBean {
+
+    /** Number of latency histogram buckets; the last one counts everything
+     * slower */
+    public static final int HISTOGRAM_SIZE = 40;
+
+    static final int ADD = 0;
+    static final int POLL = 1;
+    static final int CHANGE_PRIORITY = 2;
+    static final int REMOVE = 3;
+
+    private final Heap<?, ?> heap;
+    private long[] ops = new long[4];
+    private long[][] latency = new long[4][HISTOGRAM_SIZE];
+    private long compares;
+    private long moves;
+    private long upLevels;
+    private long downLevels;
+
+    /** constructor: metrics for heap */
+    HeapMetrics(Heap<?, ?> heap) {
+        this.heap = heap;
+    }
+
+    void compare() {
+        compares++;
+    }
+
+    void move() {
+        moves++;
+    }
+
+    void movedUp() {
+        upLevels++;
+    }
+
+    void movedDown() {
+        downLevels++;
+    }
+
+    /* Record an operation of the given kind that took nanos nanoseconds. */
+    void operation(int kind, long nanos) {
+        ops[kind]++;
+        int bucket = 64 - Long.numberOfLeadingZeros(Math.max(nanos, 0));
+        latency[kind][Math.min(bucket, HISTOGRAM_SIZE - 1)]++;
+    }
+
+    /** Register these metrics with the platform MBean server under
+     * heap:type=Heap,name=name and return the name used. */
+    public ObjectName register(String name) throws JMException {
+        ObjectName on = new ObjectName("heap:type=Heap,name="
+                + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, on);
+        return on;
+    }
+
+    public long getAdds() {
+        return ops[ADD];
+    }
+
+    public long getPolls() {
+        return ops[POLL];
+    }
+
+    public long getChangePriorities() {
+        return ops[CHANGE_PRIORITY];
+    }
+
+    public long getRemoves() {
+        return ops[REMOVE];
+    }
+
+    public long getCompares() {
+        return compares;
+    }
+
+    public long getMoves() {
+        return moves;
+    }
+
+    public long getBubbleUpLevels() {
+        return upLevels;
+    }
+
+    public long getBubbleDownLevels() {
+        return downLevels;
+    }
+
+    public double getComparesPerOperation() {
+        long n = ops[ADD] + ops[POLL] + ops[CHANGE_PRIORITY] + ops[REMOVE];
+        return n == 0 ? 0 : (double) compares / n;
+    }
+
+    public long[] getAddLatencyHistogram() {
+        return latency[ADD].clone();
+    }
+
+    public long[] getPollLatencyHistogram() {
+        return latency[POLL].clone();
+    }
+
+    public long[] getChangePriorityLatencyHistogram() {
+        return latency[CHANGE_PRIORITY].clone();
+    }
+
+    public long[] getRemoveLatencyHistogram() {
+        return latency[REMOVE].clone();
+    }
+
+    public int getSize() {
+        return heap.size();
+    }
+
+    public void reset() {
+        ops = new long[4];
+        latency = new long[4][HISTOGRAM_SIZE];
+        compares = moves = upLevels = downLevels = 0;
+    }
+
+    /** returns a one-line summary of the counters */
+    public String toString() {
+        return "adds=" + ops[ADD] + " polls=" + ops[POLL]
+                + " changePriorities=" + ops[CHANGE_PRIORITY]
+                + " removes=" + ops[REMOVE]
+                + " compares=" + compares + " moves=" + moves
+                + " upLevels=" + upLevels + " downLevels=" + downLevels;
+    }
+}
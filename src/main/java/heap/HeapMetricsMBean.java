@@ -0,0 +1,53 @@
+package heap;
+
+/** The JMX view of a Heap's HeapMetrics. */
+public interface HeapMetricsMBean {
+
+    /** Return the number of add calls */
+    long getAdds();
+
+    /** Return the number of poll calls */
+    long getPolls();
+
+    /** Return the number of changePriority calls */
+    long getChangePriorities();
+
+    /** Return the number of remove calls */
+    long getRemoves();
+
+    /** Return the number of priority comparisons */
+    long getCompares();
+
+    /** Return the number of entries bubbleUp and bubbleDown moved one
+     * level into the hole left by the entry being sifted */
+    long getMoves();
+
+    /** Return the number of levels elements moved up in bubbleUp */
+    long getBubbleUpLevels();
+
+    /** Return the number of levels elements moved down in bubbleDown */
+    long getBubbleDownLevels();
+
+    /** Return compares / (adds + polls + changePriorities + removes) */
+    double getComparesPerOperation();
+
+    /** Return add latencies: element i counts calls that took less than
+     * 2^i nanoseconds and at least 2^(i-1) */
+    long[] getAddLatencyHistogram();
+
+    /** Return poll latencies, bucketed like getAddLatencyHistogram */
+    long[] getPollLatencyHistogram();
+
+    /** Return changePriority latencies, bucketed like
+     * getAddLatencyHistogram */
+    long[] getChangePriorityLatencyHistogram();
+
+    /** Return remove latencies, bucketed like getAddLatencyHistogram */
+    long[] getRemoveLatencyHistogram();
+
+    /** Return the number of values in the heap */
+    int getSize();
+
+    /** Set every counter back to 0 */
+    void reset();
+}
@@ -0,0 +1,112 @@
+package heap;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/** An AList of ints backed by an int[], so elements are never boxed.
+* Follows the same size/capacity contract as AList. */
+public class IntAList {
+
+  protected int size; // number of elements in the IntAList
+  protected int[] a; // the backing array storage
+
+  public int size() {
+    return size;
+  }
+
+  protected int getCap() {
+    return a.length;
+  }
+
+  /** Creates an IntAList with a default capacity of 8 */
+  public IntAList() {
+    this(8);
+  }
+
+  /** Creates an IntAList with the given capacity */
+  public IntAList(int capacity) {
+    a = new int[capacity];
+    size = 0;
+  }
+
+  /* Grows a by doubling its capacity until it holds newSize elements. Does
+  * nothing if newSize <= a.length. This does *not* change the size.
+  * @throws OutOfMemoryError if newSize exceeds GrowthPolicy.MAX_CAPACITY */
+  protected void growIfNeeded(int newSize) {
+    if (newSize > a.length) {
+      if (newSize > GrowthPolicy.MAX_CAPACITY) {
+        throw new OutOfMemoryError("IntAList capacity exceeded: " + newSize);
+      }
+      long cap = Math.max(a.length, 1);
+      while (cap < newSize) cap *= 2;
+      a = Arrays.copyOf(a, (int) Math.min(cap, GrowthPolicy.MAX_CAPACITY));
+    }
+  }
+
+  /** Resizes the IntAList.
+  *  this *does* modify the size, and may modify the capacity if newsize
+  *  exceeds capacity. Elements exposed by growing the size are 0. */
+  public void resize(int newSize) {
+    growIfNeeded(newSize);
+    if (newSize < size) Arrays.fill(a, newSize, size, 0);
+    size = newSize;
+  }
+
+  /** Gets element i from IntAList.
+  * @throws ArrayIndexOutOfBoundsException if 0 <= i < size does not hold */
+  public int get(int i) {
+    if (0 <= i && i < size) {
+      return a[i];
+    }
+    throw new ArrayIndexOutOfBoundsException();
+  }
+
+  /** Sets the ith element of the list to value.
+  * @throws ArrayIndexOutOfBoundsException if 0 <= i < size does not hold */
+  public void put(int i, int value) {
+    if (0 <= i && i < size) {
+      a[i] = value;
+      return;
+    }
+    throw new ArrayIndexOutOfBoundsException();
+  }
+
+  /** Appends value at the end of the IntAList, increasing size by 1.
+  * Grows the array if needed to fit the appended value */
+  public void append(int value) {
+    if (size == a.length) growIfNeeded(size + 1);
+    a[size++] = value;
+  }
+
+  /** Appends every element of values, growing the array at most once */
+  public void addAll(int[] values) {
+    growIfNeeded(sizePlus(values.length));
+    System.arraycopy(values, 0, a, size, values.length);
+    size += values.length;
+  }
+
+  /* Return size + n.
+  * @throws OutOfMemoryError if that exceeds GrowthPolicy.MAX_CAPACITY */
+  private int sizePlus(int n) {
+    if (n > GrowthPolicy.MAX_CAPACITY - size) {
+      throw new OutOfMemoryError("IntAList capacity exceeded: " + ((long) size + n));
+    }
+    return size + n;
+  }
+
+  /** Removes and returns the value at the end of the IntAList.
+  *  this *does* modify size and cannot modify capacity.
+  *  @throws NoSuchElementException if size == 0*/
+  public int pop() {
+    if (size == 0) throw new NoSuchElementException();
+    int tmp = a[--size];
+    a[size] = 0;
+    return tmp;
+  }
+
+  /** Returns a copy of the elements of the IntAList */
+  public int[] toArray() {
+    return Arrays.copyOf(a, size);
+  }
+
+}
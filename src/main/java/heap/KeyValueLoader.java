@@ -0,0 +1,223 @@
+package heap;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/** Loads whitespace-delimited key/value files like P2TestInput.txt without
+ * java.util.Scanner. The file is memory-mapped and tokenized byte by byte;
+ * keys and values are handed out as CharSequence views of the mapped bytes,
+ * so no String is created unless the receiver asks for one.
+ *
+ * Loading with more than one thread splits the file at line boundaries,
+ * so it needs every line to hold whole pairs; see load(file, threads). */
+public final class KeyValueLoader {
+
+    /* bytes mapped at a time; each window ends at a record boundary */
+    static final int WINDOW = 1 << 28;
+
+    private KeyValueLoader() {
+    }
+
+    /** Receives each key/value pair of a file, in file order. Both views
+     * are reused and are only valid during the call. */
+    public interface Sink {
+        void pair(CharSequence key, CharSequence value);
+    }
+
+    /** Pass every key/value pair of file to sink.
+     * @throws IOException if the file cannot be read or ends with a key
+     *         that has no value. */
+    public static void scan(Path file, Sink sink) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            scan(ch, 0, ch.size(), sink);
+        }
+    }
+
+    /** Return a table of every key/value pair in file. If a key appears
+     * more than once, its last value wins. */
+    public static PackedKeyTable<String> load(Path file) throws IOException {
+        return load(file, 1);
+    }
+
+    /** Return a table of every key/value pair in file, splitting the file
+     * at line boundaries into one range per thread. Each thread loads its
+     * range into its own table and the tables are merged in file order.
+     *
+     * Precondition: no pair spans a line break, so that every range starts
+     * with a key. The result is then the same as load(file). A pair that
+     * spans a split point leaves its key at the end of one range, which is
+     * reported as a key without a value.
+     * @throws IllegalArgumentException if threads < 1
+     * @throws IOException if the file cannot be read, ends with a key that
+     *         has no value, or a pair spans a split point */
+    public static PackedKeyTable<String> load(Path file, int threads)
+            throws IOException {
+        if (threads < 1) throw new IllegalArgumentException();
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            long[] bounds = split(ch, threads);
+            int n = bounds.length - 1;
+            if (n == 1) return loadRange(ch, 0, bounds[1]);
+
+            @SuppressWarnings("unchecked")
+            PackedKeyTable<String>[] parts = (PackedKeyTable<String>[]) new PackedKeyTable<?>[n];
+            IOException[] errors = new IOException[n];
+            Thread[] workers = new Thread[n];
+            for (int i = 0; i < n; i++) {
+                final int t = i;
+                workers[i] = new Thread(() -> {
+                    try {
+                        parts[t] = loadRange(ch, bounds[t], bounds[t + 1]);
+                    } catch (IOException e) {
+                        errors[t] = e;
+                    }
+                });
+                workers[i].start();
+            }
+            for (Thread w : workers) {
+                try {
+                    w.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("interrupted while loading", e);
+                }
+            }
+            for (IOException e : errors) {
+                if (e != null) throw e;
+            }
+
+            PackedKeyTable<String> result = parts[0];
+            for (int i = 1; i < n; i++) {
+                parts[i].forEach((b, off, len, v) -> result.put(b, off, len, v));
+                parts[i] = null;
+            }
+            return result;
+        }
+    }
+
+    private static PackedKeyTable<String> loadRange(FileChannel ch, long start,
+            long end) throws IOException {
+        PackedKeyTable<String> t = new PackedKeyTable<String>();
+        scan(ch, start, end, (k, v) -> t.put(k, v.toString()));
+        return t;
+    }
+
+    /* Return the start of each of at most n ranges of ch, followed by its
+     * size. Every range but the first starts just after a newline. */
+    static long[] split(FileChannel ch, int n) throws IOException {
+        long size = ch.size();
+        long[] bounds = new long[n + 1];
+        int count = 1;
+        ByteBuffer one = ByteBuffer.allocate(1);
+        for (int i = 1; i < n; i++) {
+            long pos = Math.max(size / n * i, bounds[count - 1]);
+            // advance to just past the next newline
+            while (pos < size) {
+                one.clear();
+                ch.read(one, pos++);
+                if (one.get(0) == '\n') break;
+            }
+            if (pos >= size) break;
+            if (pos > bounds[count - 1]) bounds[count++] = pos;
+        }
+        bounds[count++] = size;
+        long[] result = new long[count];
+        System.arraycopy(bounds, 0, result, 0, count);
+        return result;
+    }
+
+    /* Tokenize ch[start..end-1], mapping at most WINDOW bytes at a time. */
+    static void scan(FileChannel ch, long start, long end, Sink sink)
+            throws IOException {
+        scan(ch, start, end, WINDOW, sink);
+    }
+
+    /* Tokenize ch[start..end-1], mapping at most window bytes at a time.
+     * Each window after the first starts where the last complete pair of
+     * the one before it ended, so a pair may span lines and windows. */
+    static void scan(FileChannel ch, long start, long end, int window,
+            Sink sink) throws IOException {
+        Slice key = new Slice();
+        Slice value = new Slice();
+        long pos = start;
+        while (pos < end) {
+            int len = (int) Math.min(window, end - pos);
+            MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, pos, len);
+            boolean last = pos + len == end;
+            int used = tokenize(buf, len, last, key, value, sink);
+            if (used == 0 && !last) {
+                throw new IOException("pair longer than " + window
+                        + " bytes at offset " + pos);
+            }
+            pos += used;
+        }
+    }
+
+    /* Pass each complete pair of buf[0..limit-1] to sink and return the
+     * number of bytes up to the end of the last one. Unless last is true,
+     * buf may end inside a pair, which is left for the next window: a pair
+     * is complete only once a space follows its value. */
+    private static int tokenize(ByteBuffer buf, int limit, boolean last,
+            Slice key, Slice value, Sink sink) throws IOException {
+        int i = 0;
+        while (true) {
+            while (i < limit && isSpace(buf.get(i))) i++;
+            if (i == limit) return limit;
+            int k = i;
+            while (i < limit && !isSpace(buf.get(i))) i++;
+            key.set(buf, k, i - k);
+
+            while (i < limit && isSpace(buf.get(i))) i++;
+            if (i == limit) {
+                if (!last) return k;
+                throw new IOException("key without a value: " + key);
+            }
+            int v = i;
+            while (i < limit && !isSpace(buf.get(i))) i++;
+            if (i == limit && !last) return k;
+            value.set(buf, v, i - v);
+            sink.pair(key, value);
+        }
+    }
+
+    private static boolean isSpace(byte b) {
+        return b == ' ' || b == '\n' || b == '\r' || b == '\t' || b == '\f'
+                || b == 0x0b;
+    }
+
+    /* A CharSequence view of len bytes of a buffer, one char per byte. */
+    static final class Slice implements CharSequence {
+        private ByteBuffer buf;
+        private int off;
+        private int len;
+
+        void set(ByteBuffer b, int o, int n) {
+            buf = b;
+            off = o;
+            len = n;
+        }
+
+        public int length() {
+            return len;
+        }
+
+        public char charAt(int i) {
+            if (i < 0 || i >= len) throw new IndexOutOfBoundsException();
+            return (char) (buf.get(off + i) & 0xff);
+        }
+
+        public CharSequence subSequence(int start, int end) {
+            return toString().substring(start, end);
+        }
+
+        public String toString() {
+            byte[] b = new byte[len];
+            for (int i = 0; i < len; i++) b[i] = buf.get(off + i);
+            return new String(b, StandardCharsets.ISO_8859_1);
+        }
+    }
+}
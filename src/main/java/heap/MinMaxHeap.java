@@ -0,0 +1,230 @@
+package heap;
+
+import java.util.NoSuchElementException;
+
+/** An instance is a double-ended priority queue of distinct values of type
+ *  V with priorities of type P: both the value with the smallest priority
+ *  and the one with the largest can be seen in constant time and removed
+ *  in logarithmic time. Like Heap, it keeps a complete tree in an AList
+ *  and one index map from values to positions. */
+public final class MinMaxHeap<V, P extends Comparable<P>> {
+
+    /**
+     * c is a complete binary tree laid out as in Heap: c[0] is the root and
+     * c[2i+1], c[2i+2] are the children of c[i]. Levels alternate between
+     * min levels and max levels, starting with the root on a min level.
+     *
+     * Class Invariants:
+     *     1. `c[0..c.size()-1]` are non-null.
+     *     2. If c[i] is on a min level, its priority is <= the priorities of
+     *        all its descendants; if on a max level, >= them. So the
+     *        smallest priority is at c[0] and the largest at c[0], c[1] or
+     *        c[2].
+     *     3. The tree contains no duplicate values.
+     *     4. For each value v in the tree, map.get(v) is the index of v in c.
+     */
+    AList<Entry> c;
+    HashTable<V, Integer> map;
+
+    /** Constructor: an empty heap with capacity 10. */
+    public MinMaxHeap() {
+        this(10);
+    }
+
+    /** Constructor: an empty heap that holds capacity values without
+     *  growing c or rehashing map. */
+    public MinMaxHeap(int capacity) {
+        c = new AList<Entry>(capacity);
+        map = new HashTable<V, Integer>(capacity * 5 / 4 + 1);
+    }
+
+    /** An Entry contains a value and a priority. */
+    class Entry {
+        final V value;
+        final P priority;
+
+        /** An Entry with value v and priority p*/
+        Entry(V v, P p) {
+            value = v;
+            priority = p;
+        }
+
+        public String toString() {
+            return value.toString();
+        }
+    }
+
+    /** Return the number of values in this heap. */
+    public int size() {
+        return c.size;
+    }
+
+    /** Return true if the value v is in the heap. */
+    public boolean contains(V v) {
+        return map.containsKey(v);
+    }
+
+    /** Add v with priority p to the heap.
+     *  @throws IllegalArgumentException if v is already in the heap. */
+    public void add(V v, P p) throws IllegalArgumentException {
+        if (map.containsKey(v)) throw new IllegalArgumentException();
+        c.append(new Entry(v, p));
+        map.put(v, c.size - 1);
+        fix(c.size - 1);
+    }
+
+    /** Return the value with the smallest priority.
+     *  @throws NoSuchElementException if the heap is empty. */
+    public V peekMin() throws NoSuchElementException {
+        if (c.size == 0) throw new NoSuchElementException();
+        return c.get(0).value;
+    }
+
+    /** Return the value with the largest priority.
+     *  @throws NoSuchElementException if the heap is empty. */
+    public V peekMax() throws NoSuchElementException {
+        if (c.size == 0) throw new NoSuchElementException();
+        return c.get(maxIndex()).value;
+    }
+
+    /** Return the smallest priority in the heap.
+     *  @throws NoSuchElementException if the heap is empty. */
+    public P peekMinPriority() throws NoSuchElementException {
+        if (c.size == 0) throw new NoSuchElementException();
+        return c.get(0).priority;
+    }
+
+    /** Return the largest priority in the heap.
+     *  @throws NoSuchElementException if the heap is empty. */
+    public P peekMaxPriority() throws NoSuchElementException {
+        if (c.size == 0) throw new NoSuchElementException();
+        return c.get(maxIndex()).priority;
+    }
+
+    /** Remove and return the value with the smallest priority.
+     *  @throws NoSuchElementException if the heap is empty. */
+    public V pollMin() throws NoSuchElementException {
+        if (c.size == 0) throw new NoSuchElementException();
+        return removeAt(0).value;
+    }
+
+    /** Remove and return the value with the largest priority.
+     *  @throws NoSuchElementException if the heap is empty. */
+    public V pollMax() throws NoSuchElementException {
+        if (c.size == 0) throw new NoSuchElementException();
+        return removeAt(maxIndex()).value;
+    }
+
+    /** Change the priority of value v to p.
+     *  @throws IllegalArgumentException if v is not in the heap. */
+    public void changePriority(V v, P p) throws IllegalArgumentException {
+        Integer i = map.get(v);
+        if (i == null) throw new IllegalArgumentException();
+        c.put(i, new Entry(v, p));
+        fix(i);
+    }
+
+    /** Remove v from the heap and return its priority.
+     *  @throws IllegalArgumentException if v is not in the heap. */
+    public P remove(V v) throws IllegalArgumentException {
+        Integer i = map.get(v);
+        if (i == null) throw new IllegalArgumentException();
+        return removeAt(i).priority;
+    }
+
+    /* Return the index of the largest priority. Precondition: c is not
+     * empty. */
+    private int maxIndex() {
+        if (c.size == 1) return 0;
+        if (c.size == 2) return 1;
+        return compare(1, 2) >= 0 ? 1 : 2;
+    }
+
+    /* Remove and return c[i], moving the last entry into its place. */
+    private Entry removeAt(int i) {
+        Entry e = c.get(i);
+        map.remove(e.value);
+        Entry last = c.pop();
+        if (i < c.size) {
+            c.put(i, last);
+            map.put(last.value, i);
+            fix(i);
+        }
+        return e;
+    }
+
+    /* Restore the invariants after c[i] has been replaced, assuming they
+     * hold everywhere else. If c[i] belongs above its parent, the two swap:
+     * the parent then moves down from i and c[i] moves up from the parent's
+     * level. Otherwise c[i] moves up through same-kind ancestors or, if it
+     * does not move up, down. */
+    private void fix(int i) {
+        int dir = isMinLevel(i) ? 1 : -1;
+        if (i > 0) {
+            int parent = (i - 1) / 2;
+            if (compare(i, parent) * dir > 0) {
+                swap(i, parent);
+                trickleDown(i, dir);
+                bubbleUp(parent, -dir);
+                return;
+            }
+        }
+        Entry e = c.get(i);
+        bubbleUp(i, dir);
+        if (c.get(i) == e) trickleDown(i, dir);
+    }
+
+    /* Move c[i] up past grandparents it should precede; dir is 1 if i is on
+     * a min level and -1 if on a max level. */
+    private void bubbleUp(int i, int dir) {
+        while (i > 2) {
+            int g = ((i - 1) / 2 - 1) / 2;
+            if (compare(i, g) * dir >= 0) return;
+            swap(i, g);
+            i = g;
+        }
+    }
+
+    /* Move c[i] down to its place among its descendants; dir is 1 if i is
+     * on a min level and -1 if on a max level. */
+    private void trickleDown(int i, int dir) {
+        while (2 * i + 1 < c.size) {
+            // m: the child or grandchild that belongs furthest up
+            int m = 2 * i + 1;
+            int end = Math.min(4 * i + 7, c.size);
+            for (int j = m + 1; j < end; j++) {
+                if (j == 2 * i + 3) j = 4 * i + 3;  // skip to the grandchildren
+                if (j >= end) break;
+                if (compare(j, m) * dir < 0) m = j;
+            }
+            if (compare(m, i) * dir >= 0) return;
+            swap(m, i);
+            // a child's descendants all lie beyond its old priority, and so
+            // beyond the entry it received
+            if (m <= 2 * i + 2) return;
+            int parent = (m - 1) / 2;
+            if (compare(m, parent) * dir > 0) swap(m, parent);
+            i = m;
+        }
+    }
+
+    /* Return true if index i is on a min level. */
+    private static boolean isMinLevel(int i) {
+        return (31 - Integer.numberOfLeadingZeros(i + 1)) % 2 == 0;
+    }
+
+    /* Compare the priorities of c[a] and c[b]. */
+    private int compare(int a, int b) {
+        return c.get(a).priority.compareTo(c.get(b).priority);
+    }
+
+    /* Swap c[a] and c[b], updating map. */
+    private void swap(int a, int b) {
+        Entry ea = c.get(a);
+        Entry eb = c.get(b);
+        c.put(a, eb);
+        c.put(b, ea);
+        map.put(eb.value, a);
+        map.put(ea.value, b);
+    }
+}
@@ -0,0 +1,220 @@
+package heap;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/** An AList of fixed-width records stored outside the Java heap, so that
+* very large lists add nothing for the garbage collector to scan or copy.
+* Each element is written through a RecordCodec into chunks of direct
+* memory, or of a memory-mapped file when the list is opened with mapped().
+* A mapped list persists its contents and reopens without reading them.
+*
+* Records are not cleared by pop or by shrinking the size, so growing the
+* size again exposes the old records (or zero bytes in new chunks).
+*
+* Call close() when done. Direct chunks are freed once the list is
+* collected; Java 8 has no public way to release them sooner. */
+public class OffHeapAList<T> implements Closeable {
+
+  private static final int MAGIC = 0x4f48414c;
+  private static final int HEADER = 16; // magic, record width, size
+
+  protected int size; // number of elements in the OffHeapAList
+  protected ByteBuffer[] chunks; // the directory of chunks, null once closed
+  protected int chunkCount; // number of chunks allocated so far
+  protected final RecordCodec<T> codec;
+  protected final int width; // bytes per record
+  protected final int shift; // log2 of the records per chunk
+  protected final int mask; // records per chunk - 1
+
+  private FileChannel file; // backing file of a mapped list, else null
+  private MappedByteBuffer header; // header of a mapped list
+
+  public int size() {
+    return size;
+  }
+
+  /* A long, since chunkCount << shift can pass Integer.MAX_VALUE */
+  protected long getCap() {
+    return (long) chunkCount << shift;
+  }
+
+  /** Creates an OffHeapAList in direct memory with chunks of 2^16
+  * records */
+  public OffHeapAList(RecordCodec<T> codec) {
+    this(codec, 16);
+  }
+
+  /** Creates an OffHeapAList in direct memory with chunks of 2^chunkBits
+  * records.
+  * @throws IllegalArgumentException if a chunk would exceed 1 GB */
+  public OffHeapAList(RecordCodec<T> codec, int chunkBits) {
+    this.codec = codec;
+    width = codec.width();
+    if (chunkBits < 0 || ((long) width << chunkBits) > (1 << 30)) {
+      throw new IllegalArgumentException();
+    }
+    shift = chunkBits;
+    mask = (1 << chunkBits) - 1;
+    chunks = new ByteBuffer[8];
+  }
+
+  /** Opens the list stored in file, creating an empty one if the file does
+  * not exist, with chunks of 2^16 records. */
+  public static <T> OffHeapAList<T> mapped(Path file, RecordCodec<T> codec)
+      throws IOException {
+    return mapped(file, codec, 16);
+  }
+
+  /** Opens the list stored in file, creating an empty one if the file does
+  * not exist, with chunks of 2^chunkBits records. Only the chunks holding
+  * elements are mapped; none are read.
+  * @throws IOException if file holds a list of another record width, or
+  * its header gives a size the file cannot hold */
+  public static <T> OffHeapAList<T> mapped(Path file, RecordCodec<T> codec,
+      int chunkBits) throws IOException {
+    OffHeapAList<T> l = new OffHeapAList<T>(codec, chunkBits);
+    FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE,
+        StandardOpenOption.READ, StandardOpenOption.WRITE);
+    boolean opened = false;
+    try {
+      boolean fresh = ch.size() == 0;
+      l.file = ch;
+      l.header = ch.map(FileChannel.MapMode.READ_WRITE, 0, HEADER);
+      l.header.order(ByteOrder.LITTLE_ENDIAN);
+      if (fresh) {
+        l.header.putInt(0, MAGIC);
+        l.header.putInt(4, l.width);
+        l.header.putLong(8, 0);
+      } else if (l.header.getInt(0) != MAGIC || l.header.getInt(4) != l.width) {
+        throw new IOException("not a list of " + l.width + "-byte records: "
+            + file);
+      }
+      long n = l.header.getLong(8);
+      if (n < 0 || n > Integer.MAX_VALUE || HEADER + n * l.width > ch.size()) {
+        throw new IOException("corrupt size " + n + " in " + file);
+      }
+      l.growIfNeeded((int) n);
+      l.size = (int) n;
+      opened = true;
+      return l;
+    } finally {
+      if (!opened) ch.close();
+    }
+  }
+
+  /* Adds chunks until newSize records fit. Does nothing if newSize <=
+  * capacity. Existing chunks are never copied. This does *not* change the
+  * size. */
+  protected void growIfNeeded(int newSize) {
+    if (newSize < 0) throw new OutOfMemoryError("OffHeapAList capacity exceeded");
+    checkOpen();
+    while (getCap() < newSize) {
+      if (chunkCount == chunks.length) {
+        chunks = Arrays.copyOf(chunks, chunks.length * 2);
+      }
+      chunks[chunkCount] = newChunk(chunkCount);
+      chunkCount++;
+    }
+  }
+
+  private ByteBuffer newChunk(int c) {
+    int bytes = width << shift;
+    if (file == null) {
+      return ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+    }
+    try {
+      long pos = HEADER + (long) c * bytes;
+      return file.map(FileChannel.MapMode.READ_WRITE, pos, bytes)
+          .order(ByteOrder.LITTLE_ENDIAN);
+    } catch (IOException e) {
+      throw new IllegalStateException("could not map chunk " + c, e);
+    }
+  }
+
+  private void setSize(int n) {
+    size = n;
+    if (header != null) header.putLong(8, n);
+  }
+
+  private void checkOpen() {
+    if (chunks == null) throw new IllegalStateException("list is closed");
+  }
+
+  /** Resizes the OffHeapAList.
+  *  this *does* modify the size, and may modify the capacity if newsize
+  *  exceeds capacity. */
+  public void resize(int newSize) {
+    growIfNeeded(newSize);
+    setSize(newSize);
+  }
+
+  /** Gets element i from OffHeapAList.
+  * @throws ArrayIndexOutOfBoundsException if 0 <= i < size does not hold */
+  public T get(int i) {
+    if (0 <= i && i < size) {
+      return codec.read(chunks[i >>> shift], (i & mask) * width);
+    }
+    checkOpen();
+    throw new ArrayIndexOutOfBoundsException();
+  }
+
+  /** Sets the ith element of the list to value.
+  * @throws ArrayIndexOutOfBoundsException if 0 <= i < size does not hold */
+  public void put(int i, T value) {
+    if (0 <= i && i < size) {
+      codec.write(chunks[i >>> shift], (i & mask) * width, value);
+      return;
+    }
+    checkOpen();
+    throw new ArrayIndexOutOfBoundsException();
+  }
+
+  /** Appends value at the end of the OffHeapAList, increasing size by 1.
+  * Adds a chunk if needed to fit the appended value */
+  public void append(T value) {
+    if (size == getCap()) growIfNeeded(size + 1);
+    codec.write(chunks[size >>> shift], (size & mask) * width, value);
+    setSize(size + 1);
+  }
+
+  /** Removes and returns the value at the end of the OffHeapAList.
+  *  this *does* modify size and cannot modify capacity.
+  *  @throws NoSuchElementException if size == 0*/
+  public T pop() {
+    if (size == 0) throw new NoSuchElementException();
+    T tmp = get(size - 1);
+    setSize(size - 1);
+    return tmp;
+  }
+
+  /** Writes the records and size of a mapped list to its file. Does
+  * nothing for a list in direct memory. */
+  public void force() {
+    checkOpen();
+    if (file == null) return;
+    for (int c = 0; c < chunkCount; c++) ((MappedByteBuffer) chunks[c]).force();
+    header.force();
+  }
+
+  /** Forces a mapped list to its file and closes it. The list cannot be
+  * used afterwards. */
+  public void close() throws IOException {
+    if (chunks == null) return;
+    force();
+    chunks = null;
+    header = null;
+    size = 0;
+    chunkCount = 0;
+    if (file != null) file.close();
+  }
+
+}
@@ -0,0 +1,328 @@
+package heap;
+
+import java.util.Arrays;
+
+/** A hash table specialized for short byte-string keys, such as the 4-8
+ * character ASCII words in P2TestInput.txt. Like HashTable it uses chaining
+ * and doubles its bucket array when the load factor exceeds 0.8, but instead
+ * of a Pair object per mapping it keeps each entry in parallel primitive
+ * arrays.
+ *
+ * A key of at most 8 ASCII characters is packed into a single long (7 bits
+ * per character plus a 4-bit length), so hashing and comparing it is a
+ * single long operation. Longer or non-ASCII keys are copied into a shared
+ * byte arena and the long holds their offset and length instead.
+ *
+ * Keys are byte strings: a CharSequence key is read one byte per char, so
+ * every char must be in 0..255 (ISO-8859-1). A key is at most
+ * MAX_KEY_LENGTH bytes, since an arena reference keeps the length in 24
+ * bits. Lookups through the CharSequence and byte[] methods never create a
+ * String. */
+public class PackedKeyTable<V> {
+
+    private static final long ARENA_FLAG = 1L << 63;
+    private static final int MAX_PACKED = 8;
+
+    /** The longest key a table can hold, in bytes: 2^24 - 1 */
+    public static final int MAX_KEY_LENGTH = 0xffffff;
+
+    protected int[] buckets;  // index of the first entry of each chain, or -1
+    protected long[] keys;    // packed key or arena reference of each entry
+    protected int[] next;     // index of the next entry in the chain, or -1
+    protected Object[] values;
+    protected int size;       // how many items currently in the map
+    protected int used;       // number of entry slots handed out so far
+    protected int free = -1;  // head of the list of removed entry slots
+
+    protected byte[] arena;   // bytes of keys too long to pack
+    protected int arenaSize;
+
+    /** constructor: initialize with default capacity 17 */
+    public PackedKeyTable() {
+        this(17);
+    }
+
+    /** constructor: initialize the given capacity */
+    public PackedKeyTable(int capacity) {
+        buckets = new int[capacity];
+        Arrays.fill(buckets, -1);
+        int n = Math.max(capacity, 8);
+        keys = new long[n];
+        next = new int[n];
+        values = new Object[n];
+        arena = new byte[64];
+    }
+
+    /** Return the size of the map (the number of key-value mappings in the
+     * table) */
+    public int getSize() {
+        return size;
+    }
+
+    /** Return the current capacity of the table (the size of the buckets
+     * array) */
+    public int getCapacity() {
+        return buckets.length;
+    }
+
+    /** Return the number of bytes used by the arena for keys that could not
+     * be packed into a long. Removed keys are not reclaimed. */
+    public int getArenaSize() {
+        return arenaSize;
+    }
+
+    /** Return the value to which key is mapped, or null if this map
+     * contains no mapping for the key.
+     * @throws IllegalArgumentException if key contains a char above 255 */
+    public V get(CharSequence key) {
+        int e = find(key, 0, key.length());
+        return e < 0 ? null : value(e);
+    }
+
+    /** Return the value to which the key b[off..off+len-1] is mapped, or
+     * null if this map contains no mapping for the key. */
+    public V get(byte[] b, int off, int len) {
+        int e = find(b, off, len);
+        return e < 0 ? null : value(e);
+    }
+
+    /** Return true if this map contains a mapping for key. */
+    public boolean containsKey(CharSequence key) {
+        return find(key, 0, key.length()) >= 0;
+    }
+
+    /** Return true if this map contains a mapping for the key
+     * b[off..off+len-1]. */
+    public boolean containsKey(byte[] b, int off, int len) {
+        return find(b, off, len) >= 0;
+    }
+
+    /** Associate val with key, returning the previous value or null. If the
+     * load factor exceeds 0.8 after this insertion, grow the bucket array by
+     * a factor of two and rehash.
+     * @throws IllegalArgumentException if key is longer than MAX_KEY_LENGTH
+     *         or contains a char above 255 */
+    public V put(CharSequence key, V val) {
+        return put((Object) key, 0, key.length(), val);
+    }
+
+    /** Associate val with the key b[off..off+len-1], returning the previous
+     * value or null.
+     * @throws IllegalArgumentException if len > MAX_KEY_LENGTH */
+    public V put(byte[] b, int off, int len, V val) {
+        return put((Object) b, off, len, val);
+    }
+
+    /** Remove the mapping for key if present, returning its previous value
+     * or null. */
+    public V remove(CharSequence key) {
+        return remove((Object) key, 0, key.length());
+    }
+
+    /** Remove the mapping for the key b[off..off+len-1] if present,
+     * returning its previous value or null. */
+    public V remove(byte[] b, int off, int len) {
+        return remove((Object) b, off, len);
+    }
+
+    /** Receives the mappings of a PackedKeyTable. The key is the slice
+     * b[off..off+len-1]; b is reused, so it is only valid during the call. */
+    public interface Visitor<V> {
+        void visit(byte[] b, int off, int len, V value);
+    }
+
+    /** Pass every mapping in this table to v, in no particular order. */
+    public void forEach(Visitor<? super V> v) {
+        byte[] scratch = new byte[MAX_PACKED];
+        for (int head : buckets) {
+            for (int e = head; e >= 0; e = next[e]) {
+                long stored = keys[e];
+                if (stored < 0) {
+                    v.visit(arena, arenaOffset(stored), arenaLength(stored),
+                            value(e));
+                } else {
+                    int len = (int) (stored & 0xf);
+                    for (int i = 0; i < len; i++) {
+                        scratch[i] = (byte) ((stored >>> (4 + 7 * i)) & 0x7f);
+                    }
+                    v.visit(scratch, 0, len, value(e));
+                }
+            }
+        }
+    }
+
+    private V put(Object src, int off, int len, V val) {
+        if (len > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("key longer than "
+                    + MAX_KEY_LENGTH + " bytes");
+        }
+        long code = pack(src, off, len);
+        int h = code == ARENA_FLAG ? hashBytes(src, off, len) : mix(code);
+        int k = index(h);
+        for (int e = buckets[k]; e >= 0; e = next[e]) {
+            if (matches(e, code, src, off, len)) {
+                V v = value(e);
+                values[e] = val;
+                return v;
+            }
+        }
+
+        if (code == ARENA_FLAG) code = store(src, off, len);
+        int e = newEntry();
+        keys[e] = code;
+        values[e] = val;
+        next[e] = buckets[k];
+        buckets[k] = e;
+        size++;
+        growIfNeeded();
+        return null;
+    }
+
+    private V remove(Object src, int off, int len) {
+        long code = pack(src, off, len);
+        int h = code == ARENA_FLAG ? hashBytes(src, off, len) : mix(code);
+        int k = index(h);
+        int prev = -1;
+        for (int e = buckets[k]; e >= 0; prev = e, e = next[e]) {
+            if (matches(e, code, src, off, len)) {
+                V v = value(e);
+                if (prev < 0) buckets[k] = next[e];
+                else next[prev] = next[e];
+                values[e] = null;
+                next[e] = free;
+                free = e;
+                size--;
+                return v;
+            }
+        }
+        return null;
+    }
+
+    private int find(Object src, int off, int len) {
+        long code = pack(src, off, len);
+        int h = code == ARENA_FLAG ? hashBytes(src, off, len) : mix(code);
+        for (int e = buckets[index(h)]; e >= 0; e = next[e]) {
+            if (matches(e, code, src, off, len)) return e;
+        }
+        return -1;
+    }
+
+    /* Return true if entry e holds the key src[off..off+len-1], whose packed
+     * form is code (ARENA_FLAG if it does not pack). */
+    private boolean matches(int e, long code, Object src, int off, int len) {
+        long stored = keys[e];
+        if (code != ARENA_FLAG) return stored == code;
+        if (stored >= 0 || arenaLength(stored) != len) return false;
+        int start = arenaOffset(stored);
+        for (int i = 0; i < len; i++) {
+            if ((arena[start + i] & 0xff) != byteAt(src, off + i)) return false;
+        }
+        return true;
+    }
+
+    /* Return the key packed into a long, or ARENA_FLAG if it is longer than
+     * 8 bytes or contains a non-ASCII byte. */
+    private static long pack(Object src, int off, int len) {
+        if (len > MAX_PACKED) return ARENA_FLAG;
+        long code = len;
+        for (int i = 0; i < len; i++) {
+            int b = byteAt(src, off + i);
+            if (b > 0x7f) return ARENA_FLAG;
+            code |= (long) b << (4 + 7 * i);
+        }
+        return code;
+    }
+
+    /* Copy an unpackable key into the arena and return its reference. */
+    private long store(Object src, int off, int len) {
+        if (arenaSize + len > arena.length) {
+            long n = Math.max(2L * arena.length, (long) arenaSize + len);
+            arena = Arrays.copyOf(arena, (int) Math.min(n, Integer.MAX_VALUE));
+        }
+        int start = arenaSize;
+        for (int i = 0; i < len; i++) {
+            arena[start + i] = (byte) byteAt(src, off + i);
+        }
+        arenaSize += len;
+        return ARENA_FLAG | ((long) start << 24) | len;
+    }
+
+    private static int arenaOffset(long ref) {
+        return (int) ((ref & ~ARENA_FLAG) >>> 24);
+    }
+
+    private static int arenaLength(long ref) {
+        return (int) (ref & 0xffffff);
+    }
+
+    /* Return byte i of src, which is either a byte[] or a CharSequence. */
+    private static int byteAt(Object src, int i) {
+        if (src instanceof byte[]) return ((byte[]) src)[i] & 0xff;
+        char ch = ((CharSequence) src).charAt(i);
+        if (ch > 0xff) {
+            throw new IllegalArgumentException("key char out of range: " + ch);
+        }
+        return ch;
+    }
+
+    private static int hashBytes(Object src, int off, int len) {
+        long h = len;
+        for (int i = 0; i < len; i++) h = 31 * h + byteAt(src, off + i);
+        return mix(h);
+    }
+
+    private static int mix(long h) {
+        h *= 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /* Return the hash of the key stored in entry e. */
+    private int storedHash(int e) {
+        long stored = keys[e];
+        if (stored >= 0) return mix(stored);
+        return hashBytes(arena, arenaOffset(stored), arenaLength(stored));
+    }
+
+    private int index(int h) {
+        return (h & 0x7fffffff) % buckets.length;
+    }
+
+    /* Return a free entry slot, growing the entry arrays if needed. */
+    private int newEntry() {
+        if (free >= 0) {
+            int e = free;
+            free = next[e];
+            return e;
+        }
+        if (used == keys.length) {
+            int n = keys.length * 2;
+            keys = Arrays.copyOf(keys, n);
+            next = Arrays.copyOf(next, n);
+            values = Arrays.copyOf(values, n);
+        }
+        return used++;
+    }
+
+    /* check the load factor; if it exceeds 0.8, double the bucket array and
+     * relink every entry into its new chain. Entries are not moved. */
+    private void growIfNeeded() {
+        if ((double) size / (double) buckets.length <= 0.8) return;
+        int[] old = buckets;
+        buckets = new int[old.length * 2];
+        Arrays.fill(buckets, -1);
+        for (int head : old) {
+            for (int e = head; e >= 0; ) {
+                int nxt = next[e];
+                int k = index(storedHash(e));
+                next[e] = buckets[k];
+                buckets[k] = e;
+                e = nxt;
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private V value(int e) {
+        return (V) values[e];
+    }
+}
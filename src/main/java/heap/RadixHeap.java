@@ -0,0 +1,188 @@
+package heap;
+
+import java.util.NoSuchElementException;
+
+/** A min-priority queue of distinct values with non-negative long
+ * priorities, for monotone uses such as Dijkstra's algorithm and event
+ * simulation: no priority may be smaller than the last one polled. Within
+ * that contract it behaves like Heap, but it never compares priorities
+ * while sifting. Values sit in 65 buckets by the highest bit in which their
+ * priority differs from the last polled one; poll empties the lowest
+ * non-empty bucket into lower ones, and since each value can only move
+ * down, each one is moved at most 64 times. add, contains,
+ * changePriority and remove take constant expected time and poll takes
+ * amortized O(log C) time, where C is the largest priority. */
+public final class RadixHeap<V> {
+
+    /* A value in the queue and where it is stored: buckets[bucket].get(index) */
+    private final class Node {
+        final V value;
+        long priority;
+        int bucket;
+        int index;
+
+        Node(V value, long priority) {
+            this.value = value;
+            this.priority = priority;
+        }
+    }
+
+    private final AList<Node>[] buckets;
+    private final HashTable<V, Node> map;
+    private long last; // the last priority polled, initially 0
+    private Node min;  // the lowest node found by peek, or null if unknown
+    private int size;
+
+    /** Constructor: an empty queue. */
+    public RadixHeap() {
+        this(17);
+    }
+
+    /** Constructor: an empty queue that holds capacity values without
+     *  rehashing its index. */
+    @SuppressWarnings("unchecked") // every element is set to an AList<Node> below
+    public RadixHeap(int capacity) {
+        buckets = (AList<Node>[]) new AList<?>[65];
+        for (int i = 0; i < buckets.length; i++) buckets[i] = new AList<Node>(4);
+        map = new HashTable<V, Node>(capacity * 5 / 4 + 1);
+    }
+
+    /** Return the number of values in this queue. */
+    public int size() {
+        return size;
+    }
+
+    /** Return the last priority polled, below which no priority may go. */
+    public long lastPolled() {
+        return last;
+    }
+
+    /** Return true if the value v is in the queue. */
+    public boolean contains(V v) {
+        return map.containsKey(v);
+    }
+
+    /** Add v with priority p.
+     *  @throws IllegalArgumentException if v is already in the queue or p
+     *          is smaller than the last priority polled. */
+    public void add(V v, long p) throws IllegalArgumentException {
+        if (p < last) throw new IllegalArgumentException("priority " + p
+                + " is below the last polled " + last);
+        if (map.containsKey(v)) throw new IllegalArgumentException();
+        Node n = new Node(v, p);
+        map.put(v, n);
+        insert(n);
+        size++;
+        if (min != null && p < min.priority) min = n;
+    }
+
+    /** Return the value with lowest priority without removing it. This
+     *  does not change the last priority polled.
+     *  @throws NoSuchElementException if the queue is empty. */
+    public V peek() throws NoSuchElementException {
+        return lowest().value;
+    }
+
+    /** Return the lowest priority in the queue. This does not change the
+     *  last priority polled.
+     *  @throws NoSuchElementException if the queue is empty. */
+    public long peekPriority() throws NoSuchElementException {
+        return lowest().priority;
+    }
+
+    /** Remove and return the value with lowest priority. Values with equal
+     *  priorities come out in no particular order.
+     *  @throws NoSuchElementException if the queue is empty. */
+    public V poll() throws NoSuchElementException {
+        if (size == 0) throw new NoSuchElementException();
+        settle();
+        min = null;
+        Node n = buckets[0].pop();
+        map.remove(n.value);
+        size--;
+        return n.value;
+    }
+
+    /** Lower the priority of v to p.
+     *  @throws IllegalArgumentException if v is not in the queue, p is
+     *          larger than its priority, or p is smaller than the last
+     *          priority polled. */
+    public void changePriority(V v, long p) throws IllegalArgumentException {
+        Node n = map.get(v);
+        if (n == null) throw new IllegalArgumentException();
+        if (p > n.priority || p < last) {
+            throw new IllegalArgumentException("priority " + p
+                    + " is not in [" + last + ", " + n.priority + "]");
+        }
+        unlink(n);
+        n.priority = p;
+        insert(n);
+        if (min != null && p < min.priority) min = n;
+    }
+
+    /** Remove v from the queue and return its priority.
+     *  @throws IllegalArgumentException if v is not in the queue. */
+    public long remove(V v) throws IllegalArgumentException {
+        Node n = map.remove(v);
+        if (n == null) throw new IllegalArgumentException();
+        unlink(n);
+        size--;
+        if (n == min) min = null;
+        return n.priority;
+    }
+
+    /* Append n to the bucket for its priority. */
+    private void insert(Node n) {
+        long diff = n.priority ^ last;
+        n.bucket = diff == 0 ? 0 : 64 - Long.numberOfLeadingZeros(diff);
+        AList<Node> b = buckets[n.bucket];
+        n.index = b.size;
+        b.append(n);
+    }
+
+    /* Remove n from its bucket, moving the bucket's last node into its
+     * place. */
+    private void unlink(Node n) {
+        AList<Node> b = buckets[n.bucket];
+        Node end = b.pop();
+        if (end != n) {
+            b.put(n.index, end);
+            end.index = n.index;
+        }
+    }
+
+    /* Return the node with lowest priority, leaving last and the buckets
+     * alone: it is in buckets[0] if that is non-empty, and otherwise the
+     * lowest node of the lowest non-empty bucket, which is remembered in
+     * min until a change could make it stale.
+     * @throws NoSuchElementException if the queue is empty. */
+    private Node lowest() throws NoSuchElementException {
+        if (size == 0) throw new NoSuchElementException();
+        if (buckets[0].size > 0) return buckets[0].get(buckets[0].size - 1);
+        if (min == null) {
+            int i = 1;
+            while (buckets[i].size == 0) i++;
+            AList<Node> b = buckets[i];
+            min = b.get(0);
+            for (int j = 1; j < b.size; j++) {
+                if (b.get(j).priority < min.priority) min = b.get(j);
+            }
+        }
+        return min;
+    }
+
+    /* Make buckets[0] non-empty, if the queue is not empty, by raising last
+     * to the smallest priority in the lowest non-empty bucket and
+     * redistributing that bucket; its values all land in lower buckets. */
+    private void settle() {
+        if (buckets[0].size > 0) return;
+        int i = 1;
+        while (buckets[i].size == 0) i++;
+        AList<Node> b = buckets[i];
+        long min = Long.MAX_VALUE;
+        for (int j = 0; j < b.size; j++) min = Math.min(min, b.get(j).priority);
+        last = min;
+        for (int j = 0; j < b.size; j++) insert(b.get(j));
+        b.resize(0);
+    }
+}
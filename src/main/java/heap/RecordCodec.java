@@ -0,0 +1,62 @@
+package heap;
+
+import java.nio.ByteBuffer;
+
+/** Reads and writes values of type T as fixed-width records in a
+ * ByteBuffer, for lists that store their elements off the Java heap. */
+public interface RecordCodec<T> {
+
+  /** Return the number of bytes in each record */
+  int width();
+
+  /** Write value as a record starting at buf[offset] */
+  void write(ByteBuffer buf, int offset, T value);
+
+  /** Read the record starting at buf[offset] */
+  T read(ByteBuffer buf, int offset);
+
+  /** Ints as 4-byte records */
+  RecordCodec<Integer> INT = new RecordCodec<Integer>() {
+    public int width() {
+      return 4;
+    }
+
+    public void write(ByteBuffer buf, int offset, Integer value) {
+      buf.putInt(offset, value);
+    }
+
+    public Integer read(ByteBuffer buf, int offset) {
+      return buf.getInt(offset);
+    }
+  };
+
+  /** Longs as 8-byte records */
+  RecordCodec<Long> LONG = new RecordCodec<Long>() {
+    public int width() {
+      return 8;
+    }
+
+    public void write(ByteBuffer buf, int offset, Long value) {
+      buf.putLong(offset, value);
+    }
+
+    public Long read(ByteBuffer buf, int offset) {
+      return buf.getLong(offset);
+    }
+  };
+
+  /** Doubles as 8-byte records */
+  RecordCodec<Double> DOUBLE = new RecordCodec<Double>() {
+    public int width() {
+      return 8;
+    }
+
+    public void write(ByteBuffer buf, int offset, Double value) {
+      buf.putDouble(offset, value);
+    }
+
+    public Double read(ByteBuffer buf, int offset) {
+      return buf.getDouble(offset);
+    }
+  };
+}
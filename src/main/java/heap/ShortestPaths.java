@@ -0,0 +1,172 @@
+package heap;
+
+import java.util.Arrays;
+
+/** Single-source shortest paths on a CsrGraph with Dijkstra's algorithm and
+ * A*, both driven by a Heap that uses changePriority for decrease-key. */
+public final class ShortestPaths {
+
+    /** Estimates the distance from a node to the target. For A* to return
+     *  shortest paths it must never overestimate, and to settle each node
+     *  once it must be consistent: h(u) <= w(u,v) + h(v) for every edge. */
+    public interface Heuristic {
+        double estimate(int node);
+    }
+
+    /** The heuristic that turns A* into Dijkstra's algorithm */
+    public static final Heuristic ZERO = node -> 0;
+
+    /** Distances and shortest-path tree found by a search. */
+    public static final class Result {
+        private final double[] dist;
+        private final int[] parent;
+        private final int settled;
+
+        Result(double[] dist, int[] parent, int settled) {
+            this.dist = dist;
+            this.parent = parent;
+            this.settled = settled;
+        }
+
+        /** Return the distance from the source to v, or
+         *  Double.POSITIVE_INFINITY if v was not reached. After a search
+         *  that stopped early, distances of unsettled nodes are upper
+         *  bounds. */
+        public double distance(int v) {
+            return dist[v];
+        }
+
+        /** Return the node before v on its path from the source, or -1 for
+         *  the source and for nodes that were not reached */
+        public int parent(int v) {
+            return parent[v];
+        }
+
+        /** Return the number of nodes polled from the heap */
+        public int settledCount() {
+            return settled;
+        }
+
+        /** Return the nodes on the path from the source to v, or an empty
+         *  array if v was not reached */
+        public int[] path(int v) {
+            if (dist[v] == Double.POSITIVE_INFINITY) return new int[0];
+            int n = 1;
+            for (int u = parent[v]; u >= 0; u = parent[u]) n++;
+            int[] p = new int[n];
+            for (int u = v; u >= 0; u = parent[u]) p[--n] = u;
+            return p;
+        }
+    }
+
+    private ShortestPaths() {
+    }
+
+    /** Return the shortest distances from source to every node. */
+    public static Result dijkstra(CsrGraph g, int source) {
+        return aStar(g, source, -1, ZERO);
+    }
+
+    /** Return the shortest path from source to target, stopping as soon as
+     *  target is settled. */
+    public static Result dijkstra(CsrGraph g, int source, int target) {
+        return aStar(g, source, target, ZERO);
+    }
+
+    /** Return the shortest distances from source to every node, for a
+     *  graph whose weights are all whole numbers. */
+    public static Result dijkstraRadix(CsrGraph g, int source) {
+        return dijkstraRadix(g, source, -1);
+    }
+
+    /** Return the shortest path from source to target like dijkstra, but
+     *  driven by a RadixHeap, which needs integer priorities and so whole
+     *  number weights. With target -1 the search runs until every
+     *  reachable node is settled.
+     *  @throws IllegalArgumentException if source or target is not a node,
+     *          or the search reaches an edge whose weight is not a whole
+     *          number. */
+    public static Result dijkstraRadix(CsrGraph g, int source, int target) {
+        int n = g.nodeCount();
+        if (source < 0 || source >= n || target < -1 || target >= n) {
+            throw new IllegalArgumentException();
+        }
+        double[] dist = new double[n];
+        int[] parent = new int[n];
+        boolean[] settled = new boolean[n];
+        Arrays.fill(dist, Double.POSITIVE_INFINITY);
+        Arrays.fill(parent, -1);
+
+        RadixHeap<Integer> frontier = new RadixHeap<Integer>();
+        dist[source] = 0;
+        frontier.add(source, 0);
+        int count = 0;
+        while (frontier.size() > 0) {
+            long du = frontier.peekPriority();
+            int u = frontier.poll();
+            settled[u] = true;
+            count++;
+            if (u == target) break;
+
+            for (int e = g.firstEdge(u); e < g.endEdge(u); e++) {
+                int v = g.target(e);
+                if (settled[v]) continue;
+                long w = (long) g.weight(e);
+                if (w != g.weight(e)) {
+                    throw new IllegalArgumentException("edge " + e
+                            + " has weight " + g.weight(e));
+                }
+                long d = du + w;
+                if (d < dist[v]) {
+                    boolean queued = dist[v] != Double.POSITIVE_INFINITY;
+                    dist[v] = d;
+                    parent[v] = u;
+                    if (queued) frontier.changePriority(v, d);
+                    else frontier.add(v, d);
+                }
+            }
+        }
+        return new Result(dist, parent, count);
+    }
+
+    /** Return the shortest path from source to target found by A* with
+     *  heuristic h, stopping as soon as target is settled. With target -1
+     *  the search runs until every reachable node is settled.
+     *  @throws IllegalArgumentException if source or target is not a node */
+    public static Result aStar(CsrGraph g, int source, int target, Heuristic h) {
+        int n = g.nodeCount();
+        if (source < 0 || source >= n || target < -1 || target >= n) {
+            throw new IllegalArgumentException();
+        }
+        double[] dist = new double[n];
+        int[] parent = new int[n];
+        boolean[] settled = new boolean[n];
+        Arrays.fill(dist, Double.POSITIVE_INFINITY);
+        Arrays.fill(parent, -1);
+
+        Heap<Integer, Double> frontier = new Heap<Integer, Double>();
+        dist[source] = 0;
+        frontier.add(source, h.estimate(source));
+        int count = 0;
+        while (frontier.size() > 0) {
+            int u = frontier.poll();
+            settled[u] = true;
+            count++;
+            if (u == target) break;
+
+            for (int e = g.firstEdge(u); e < g.endEdge(u); e++) {
+                int v = g.target(e);
+                if (settled[v]) continue;
+                double d = dist[u] + g.weight(e);
+                if (d < dist[v]) {
+                    boolean queued = dist[v] != Double.POSITIVE_INFINITY;
+                    dist[v] = d;
+                    parent[v] = u;
+                    if (queued) frontier.changePriority(v, d + h.estimate(v));
+                    else frontier.add(v, d + h.estimate(v));
+                }
+            }
+        }
+        return new Result(dist, parent, count);
+    }
+}
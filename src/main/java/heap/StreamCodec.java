@@ -0,0 +1,67 @@
+package heap;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/** Writes and reads values of type T in a binary stream, for snapshots of
+ * heaps and other structures. */
+public interface StreamCodec<T> {
+
+    /** Write value to out */
+    void write(DataOutput out, T value) throws IOException;
+
+    /** Read a value written by write */
+    T read(DataInput in) throws IOException;
+
+    /** Integers as 4 bytes */
+    StreamCodec<Integer> INT = new StreamCodec<Integer>() {
+        public void write(DataOutput out, Integer value) throws IOException {
+            out.writeInt(value);
+        }
+
+        public Integer read(DataInput in) throws IOException {
+            return in.readInt();
+        }
+    };
+
+    /** Longs as 8 bytes */
+    StreamCodec<Long> LONG = new StreamCodec<Long>() {
+        public void write(DataOutput out, Long value) throws IOException {
+            out.writeLong(value);
+        }
+
+        public Long read(DataInput in) throws IOException {
+            return in.readLong();
+        }
+    };
+
+    /** Doubles as 8 bytes */
+    StreamCodec<Double> DOUBLE = new StreamCodec<Double>() {
+        public void write(DataOutput out, Double value) throws IOException {
+            out.writeDouble(value);
+        }
+
+        public Double read(DataInput in) throws IOException {
+            return in.readDouble();
+        }
+    };
+
+    /** Strings as a length followed by UTF-8 bytes */
+    StreamCodec<String> STRING = new StreamCodec<String>() {
+        public void write(DataOutput out, String value) throws IOException {
+            byte[] b = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(b.length);
+            out.write(b);
+        }
+
+        public String read(DataInput in) throws IOException {
+            int n = in.readInt();
+            if (n < 0) throw new IOException("negative string length: " + n);
+            byte[] b = new byte[n];
+            in.readFully(b);
+            return new String(b, StandardCharsets.UTF_8);
+        }
+    };
+}
@@ -0,0 +1,203 @@
+package heap;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/** Runs tasks after a delay. A single owner thread keeps the pending tasks
+ * in a Heap ordered by deadline and parks until the earliest one is due.
+ * Other threads never touch the heap: schedule, cancel and reschedule post
+ * commands to a queue that the owner drains each time it wakes. When
+ * tasks come due, the owner polls all of them, then hands them to the
+ * executor together. */
+public final class TaskScheduler {
+
+    /** A task waiting to run. Equality is identity. */
+    public final class Task {
+        private static final int PENDING = 0;
+        private static final int DISPATCHED = 1;
+        private static final int CANCELLED = 2;
+
+        private final Runnable action;
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+
+        Task(Runnable action) {
+            this.action = action;
+        }
+
+        /** Stop this task from running and return true, or return false if
+         *  it has already been handed to the executor or cancelled. */
+        public boolean cancel() {
+            if (!state.compareAndSet(PENDING, CANCELLED)) return false;
+            post(new Command(this, null));
+            return true;
+        }
+
+        /** Move this task's deadline to delay from now and return true, or
+         *  return false if it has already been handed to the executor or
+         *  cancelled. A task that comes due before the owner thread sees
+         *  the new deadline still runs at the old one. */
+        public boolean reschedule(long delay, TimeUnit unit) {
+            if (state.get() != PENDING) return false;
+            post(new Command(this, deadline(delay, unit)));
+            return true;
+        }
+
+        /** Return true if this task was cancelled */
+        public boolean isCancelled() {
+            return state.get() == CANCELLED;
+        }
+
+        /** Return true if this task has been handed to the executor */
+        public boolean isDispatched() {
+            return state.get() == DISPATCHED;
+        }
+    }
+
+    /* A System.nanoTime value at which a task is due. nanoTime may wrap
+     * past Long.MAX_VALUE, so deadlines are ordered by the sign of their
+     * difference, never by their values; this is correct because deadline()
+     * keeps every pending deadline within MAX_DELAY of the present. */
+    static final class Deadline implements Comparable<Deadline> {
+        final long nanos;
+
+        Deadline(long nanos) {
+            this.nanos = nanos;
+        }
+
+        public int compareTo(Deadline o) {
+            long d = nanos - o.nanos;
+            return d < 0 ? -1 : d > 0 ? 1 : 0;
+        }
+    }
+
+    /* A request to the owner thread: add or move task to deadline, or
+     * cancel it if deadline is null. */
+    private static final class Command {
+        final Task task;
+        final Deadline deadline;
+
+        Command(Task task, Deadline deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+    }
+
+    /* the longest delay, about 146 years; longer ones are cut to this so
+     * that any two deadlines differ by less than 2^63 */
+    static final long MAX_DELAY = Long.MAX_VALUE >> 1;
+
+    private final Executor executor;
+    private final Heap<Task, Deadline> deadlines = new Heap<Task, Deadline>();
+    private final ConcurrentLinkedQueue<Command> commands =
+            new ConcurrentLinkedQueue<Command>();
+    private final AList<Task> due = new AList<Task>(16);
+    private final Thread owner;
+    private volatile boolean sleeping;
+    private volatile boolean shutdown;
+
+    /** Constructor: a scheduler that runs tasks in the common fork-join
+     *  pool. */
+    public TaskScheduler() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /** Constructor: a scheduler that runs tasks with executor. An executor
+     *  that starts a thread per task, such as a virtual-thread executor,
+     *  keeps slow tasks from delaying the ones due with them. */
+    public TaskScheduler(Executor executor) {
+        this.executor = executor;
+        owner = new Thread(this::run, "TaskScheduler");
+        owner.setDaemon(true);
+        owner.start();
+    }
+
+    /** Run action after delay and return its Task.
+     *  @throws RejectedExecutionException if this scheduler is shut down */
+    public Task schedule(Runnable action, long delay, TimeUnit unit) {
+        if (shutdown) throw new RejectedExecutionException("scheduler is shut down");
+        Task t = new Task(action);
+        post(new Command(t, deadline(delay, unit)));
+        return t;
+    }
+
+    /** Stop the owner thread. Tasks that have not been dispatched never
+     *  run. Calling this more than once has no further effect. */
+    public void shutdown() {
+        shutdown = true;
+        LockSupport.unpark(owner);
+    }
+
+    /** Wait until the owner thread has stopped after shutdown, for at most
+     *  the given time, and return true if it has. */
+    public boolean awaitTermination(long timeout, TimeUnit unit)
+            throws InterruptedException {
+        owner.join(Math.max(1, unit.toMillis(timeout)));
+        return !owner.isAlive();
+    }
+
+    /* Return the deadline that is delay from now, with delay cut to
+     * [0, MAX_DELAY]. */
+    private static Deadline deadline(long delay, TimeUnit unit) {
+        long d = Math.min(Math.max(0, unit.toNanos(delay)), MAX_DELAY);
+        return new Deadline(System.nanoTime() + d);
+    }
+
+    /* Queue c for the owner thread, waking it only if it is parked. */
+    private void post(Command c) {
+        commands.add(c);
+        if (sleeping) LockSupport.unpark(owner);
+    }
+
+    /* The owner thread's loop. */
+    private void run() {
+        while (!shutdown) {
+            drainCommands();
+            long now = System.nanoTime();
+            while (deadlines.size() > 0 && deadlines.peekPriority().nanos - now <= 0) {
+                due.append(deadlines.poll());
+            }
+            for (int i = 0; i < due.size(); i++) {
+                Task t = due.get(i);
+                if (t.state.compareAndSet(Task.PENDING, Task.DISPATCHED)) {
+                    executor.execute(t.action);
+                }
+            }
+            due.resize(0);
+
+            // sleeping is set before commands is checked, and post adds to
+            // commands before reading sleeping, so a command is never left
+            // in the queue while the owner parks.
+            sleeping = true;
+            if (commands.isEmpty() && !shutdown) {
+                if (deadlines.size() == 0) {
+                    LockSupport.park(this);
+                } else {
+                    // no overflow: the deadline is at most MAX_DELAY ahead
+                    long wait = deadlines.peekPriority().nanos - System.nanoTime();
+                    LockSupport.parkNanos(this, wait);
+                }
+            }
+            sleeping = false;
+        }
+    }
+
+    /* Apply every queued command to deadlines. */
+    private void drainCommands() {
+        Command c;
+        while ((c = commands.poll()) != null) {
+            Task t = c.task;
+            if (c.deadline == null) {
+                if (deadlines.contains(t)) deadlines.remove(t);
+            } else if (deadlines.contains(t)) {
+                deadlines.changePriority(t, c.deadline);
+            } else if (t.state.get() == Task.PENDING) {
+                deadlines.add(t, c.deadline);
+            }
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package heap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collector;
+
+/** An instance keeps the k distinct values with the highest priorities seen
+ * so far, in O(k) memory. The values are held in a Heap whose root is the
+ * lowest kept priority, so once k values are kept an offer that cannot
+ * qualify is rejected with one comparison, and one that can replaces the
+ * root with a single sift down. Ties with the lowest kept priority go to
+ * the value offered first. */
+public final class TopK<V, P extends Comparable<P>> {
+
+    private final int k;
+    private final Heap<V, P> heap;
+
+    /** Constructor: an empty selector that keeps at most k values.
+     *  @throws IllegalArgumentException if k < 1 */
+    public TopK(int k) {
+        if (k < 1) throw new IllegalArgumentException("k must be positive: " + k);
+        this.k = k;
+        heap = new Heap<V, P>(k);
+    }
+
+    /** Return the most values this keeps */
+    public int capacity() {
+        return k;
+    }
+
+    /** Return the number of values kept */
+    public int size() {
+        return heap.size();
+    }
+
+    /** Offer v with priority p and return true if it is now kept. If v is
+     *  already kept, its priority becomes the larger of the two. */
+    public boolean offer(V v, P p) {
+        if (heap.size() == k && p.compareTo(heap.peekPriority()) <= 0) {
+            return heap.contains(v);
+        }
+        P old = heap.priorityOf(v);
+        if (old != null) {
+            if (p.compareTo(old) > 0) heap.changePriority(v, p);
+        } else if (heap.size() < k) {
+            heap.add(v, p);
+        } else {
+            heap.replaceTop(v, p);
+        }
+        return true;
+    }
+
+    /** Return the lowest priority a new value must beat to be kept, or null
+     *  if fewer than k values are kept and any value qualifies */
+    public P threshold() {
+        return heap.size() < k ? null : heap.peekPriority();
+    }
+
+    /** Offer every value kept by other to this, and return this. Selectors
+     *  filled from disjoint parts of a stream merge into the selector of the
+     *  whole stream. */
+    public TopK<V, P> merge(TopK<V, P> other) {
+        other.heap.forEach(this::offer);
+        return this;
+    }
+
+    /** Return the kept values from highest priority to lowest. This takes
+     *  O(k log k) time and does not change this selector. */
+    public List<V> toList() {
+        List<V> values = new ArrayList<V>(heap.size());
+        List<P> priorities = new ArrayList<P>(heap.size());
+        heap.forEach((v, p) -> {
+            values.add(v);
+            priorities.add(p);
+        });
+        Integer[] order = new Integer[values.size()];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> priorities.get(b).compareTo(priorities.get(a)));
+        List<V> list = new ArrayList<V>(order.length);
+        for (int i : order) list.add(values.get(i));
+        return list;
+    }
+
+    /** Return a Collector that keeps the k stream elements with the highest
+     *  priority(element) and finishes with them from highest to lowest.
+     *  Parallel streams fill one selector per partition and merge them. */
+    public static <T, P extends Comparable<P>> Collector<T, ?, List<T>> collector(
+            int k, Function<? super T, ? extends P> priority) {
+        if (k < 1) throw new IllegalArgumentException("k must be positive: " + k);
+        return Collector.of(() -> new TopK<T, P>(k),
+                (t, x) -> t.offer(x, priority.apply(x)),
+                TopK::merge,
+                t -> Collections.unmodifiableList(t.toList()));
+    }
+}
@@ -3,8 +3,15 @@ package heap;
 import static org.junit.Assert.*;
 import org.junit.FixMethodOrder;
 
+import java.io.EOFException;
 import java.io.File;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
 
 import java.util.Arrays;
 import java.util.HashMap;
@@ -14,6 +21,10 @@ import java.util.NoSuchElementException;
 import java.util.Random;
 import java.util.Set;
 import java.util.Scanner;
+import java.util.concurrent.ForkJoinPool;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 
 import org.junit.Rule;
 import org.junit.rules.Timeout;
@@ -668,10 +679,148 @@ public class A3Test {
         assertEquals("The capacity of the hashmap was incorrect in a larger test with Strings as keys", hm.getCapacity(), 2176);
     }
 
+    @Test
+    /** Test that keys match by equals(), not only by identity: separately
+     *  boxed Integers and separately built Strings find the same entry */
+    public void test292EqualKeys() {
+        // valueOf boxes each call separately above the cache's 127
+        HashTable<Integer,Integer> hm = new HashTable<Integer,Integer>();
+        for (int i = 0; i < 1000; i++) hm.put(Integer.valueOf(i + 1000), i);
+        assertEquals(1000, hm.getSize());
+        for (int i = 0; i < 1000; i++) {
+            Integer k = Integer.valueOf(i + 1000);
+            assertTrue(hm.containsKey(k));
+            assertEquals(Integer.valueOf(i), hm.get(k));
+        }
+        assertEquals(Integer.valueOf(5), hm.put(Integer.valueOf(1005), -5));
+        assertEquals(1000, hm.getSize()); // replaced, not added
+        assertEquals(Integer.valueOf(-5), hm.remove(Integer.valueOf(1005)));
+        assertFalse(hm.containsKey(1005));
+
+        HashTable<String,String> hs = new HashTable<String,String>();
+        hs.put(new String("key"), "a");
+        assertEquals("a", hs.put(new StringBuilder("k").append("ey").toString(), "b"));
+        assertEquals(1, hs.getSize());
+        assertEquals("b", hs.get(new String("key")));
+        assertEquals("b", hs.remove(new String("key")));
+        assertEquals(0, hs.getSize());
+    }
+
+    @Test
+    /** Test that opt-in metrics count lookups, probes and resizes */
+    public void test295Metrics() throws Exception {
+        HashTable<Integer,Integer> hm = new HashTable<Integer,Integer>();
+        assertNull(hm.getMetrics());
+        HashTableMetrics m = hm.enableMetrics();
+        assertSame(m, hm.enableMetrics());
+
+        Integer[] keys = new Integer[]{0, 17, 34, 1};  // 0, 17 and 34 collide
+        for (Integer k : keys) hm.put(k, k);
+        assertEquals(4, m.getPuts());
+        assertEquals(0, m.getResizes());
+
+        hm.get(keys[2]);     // third in its chain
+        hm.containsKey(keys[3]);
+        hm.get(51);          // misses after walking the whole chain
+        assertEquals(3, m.getLookups());
+        assertEquals(2, m.getHits());
+        assertEquals(1, m.getMisses());
+        long[] probes = m.getProbeHistogram();
+        assertEquals(2, probes[0]);   // puts of 0 and 1 into empty buckets
+        assertEquals(2, probes[3]);   // get of 34 and get of 51
+
+        long[] chains = m.getChainLengthHistogram();
+        assertEquals(1, chains[3]);
+        assertEquals(1, chains[1]);
+        assertEquals(15, chains[0]);
+
+        for (int i = 100; i < 120; i++) hm.put(i, i);
+        assertEquals(1, m.getResizes());
+        assertEquals(24, m.getPuts()); // rehashing is not counted as puts
+        assertTrue(m.getResizeNanos() > 0);
+
+        hm.remove(keys[1]);
+        assertEquals(1, m.getRemoves());
+        ObjectName on = m.register("test295");
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        assertEquals(24L, server.getAttribute(on, "Puts"));
+        server.unregisterMBean(on);
+
+        m.reset();
+        assertEquals(0, m.getPuts());
+
+        hm.disableMetrics();
+        hm.get(0);
+        assertEquals(0, m.getLookups());
+    }
+
+    @Test
+    /** Test that parallel resizes keep every mapping, in the common pool
+     *  and in a small pool */
+    public void test296ParallelResize() throws Exception {
+        ForkJoinPool pool = new ForkJoinPool(3);
+        for (boolean inPool : new boolean[]{false, true}) {
+            HashTable<Integer,Integer> hm = new HashTable<Integer,Integer>();
+            hm.setParallelResize(true);
+            Runnable fill = () -> {
+                for (int i = 0; i < 300000; i++) hm.put(i * 7, i);
+            };
+            if (inPool) pool.submit(fill).get();
+            else fill.run();
+            assertEquals(300000, hm.getSize());
+            assertEquals(17 << 15, hm.getCapacity());
+            for (int i = 0; i < 300000; i++) {
+                assertEquals(Integer.valueOf(i), hm.get(i * 7));
+            }
+            assertNull(hm.get(1));
+            int n = 0;
+            for (HashTable<Integer,Integer>.Pair p : hm.buckets) {
+                for (; p != null; p = p.next) n++;
+            }
+            assertEquals(300000, n);
+        }
+        pool.shutdown();
+    }
+
     ///////////////////
     // Phase 3 Tests //
     ///////////////////
 
+    @Test
+    /** Test that bulkLoad refuses a table that is not empty, and that
+     *  duplicates met by several tasks at once leave the table empty and
+     *  usable */
+    public void test297BulkLoad() {
+        int n = 100000;
+        Integer[] keys = new Integer[n];
+        Integer[] vals = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            keys[i] = i % (n - 1000);   // duplicates in every part
+            vals[i] = i;
+        }
+        HashTable<Integer,Integer> hm = new HashTable<Integer,Integer>();
+        try {
+            hm.bulkLoad(keys, vals);
+            fail("Didn't throw an exception");
+        } catch (IllegalArgumentException e) {
+            // This is supposed to happen
+        }
+        assertEquals(0, hm.getSize());
+        for (HashTable<Integer,Integer>.Pair p : hm.buckets) assertNull(p);
+
+        for (int i = 0; i < n; i++) keys[i] = i;
+        hm.bulkLoad(keys, vals);
+        assertEquals(n, hm.getSize());
+        for (int i = 0; i < n; i += 97) assertEquals(Integer.valueOf(i), hm.get(i));
+        try {
+            hm.bulkLoad(new Integer[]{-1}, new Integer[]{-1});
+            fail("Didn't throw an exception");
+        } catch (IllegalStateException e) {
+            // This is supposed to happen
+        }
+        assertFalse(hm.containsKey(-1));
+    }
+
     @Test
     /** Test whether add works when the priority of the value being added is
      * not smaller than priorities of other values in the heap. */
@@ -793,6 +942,33 @@ public class A3Test {
         }
     }
 
+    @Test
+    /** Test that poll keeps map in step with c by updating only the entries
+     *  it moves: O(log n) map writes per poll, not a rebuild of the map */
+    public void test335PollIndex() {
+        int n = 4096;
+        Heap<Integer,Integer> mh = new Heap<Integer,Integer>();
+        Random rand = new Random(40);
+        for (int i = 0; i < n; i++) mh.add(i, rand.nextInt(n));
+        HashTableMetrics m = mh.map.enableMetrics();
+        int prev = Integer.MIN_VALUE;
+        long bound = 0;
+        while (mh.size() > 0) {
+            bound += 33 - Integer.numberOfLeadingZeros(mh.size());
+            int p = mh.peekPriority();
+            mh.poll();
+            assertTrue(prev <= p);
+            prev = p;
+            if (mh.size() % 512 == 0) {
+                assertEquals(mh.size(), mh.map.getSize());
+                for (int k = 0; k < mh.size(); k++) {
+                    assertEquals(Integer.valueOf(k), mh.map.get(mh.c.get(k).value));
+                }
+            }
+        }
+        assertTrue(m.getPuts() + " map puts", m.getPuts() <= bound);
+    }
+
     @Test
     /** Test bubble-up and bubble-down with duplicate priorities. */
     public void test340testDuplicatePriorities() {
@@ -831,6 +1007,15 @@ public class A3Test {
         assertFalse(message, mh1.contains(0));
         assertFalse(message, mh1.contains(11));
         assertFalse(message, mh1.contains(974));
+
+        assertEquals(Integer.valueOf(4), mh1.priorityOf(4));
+        assertNull(mh1.priorityOf(974));
+        int[] sum = new int[1];
+        mh1.forEach((v, p) -> {
+            assertEquals(v, p);
+            sum[0] += v;
+        });
+        assertEquals(45, sum[0]);
     }
 
 
@@ -948,4 +1133,252 @@ public class A3Test {
         // System.out.println("duplicate priorities: " + dups);
     }
 
+    @Test
+    /** Test that opt-in heap metrics count compares, moves and levels */
+    public void test395HeapMetrics() {
+        Heap<Integer,Integer> mh = new Heap<Integer,Integer>();
+        assertNull(mh.getMetrics());
+        HeapMetrics m = mh.enableMetrics();
+        for (int v : new int[]{5, 3, 1}) mh.add(v, v);
+        assertEquals(3, m.getAdds());
+        assertEquals(2, m.getMoves());
+        assertEquals(2, m.getBubbleUpLevels());
+        assertEquals(2, m.getCompares());   // one per level; the root is not compared with itself
+
+        mh.poll();      // 3 replaces the root and stays there
+        assertEquals(1, m.getPolls());
+        assertEquals(3, m.getCompares());
+        assertEquals(0, m.getBubbleDownLevels());
+
+        mh.changePriority(3, 9);    // moves below 5
+        assertEquals(1, m.getChangePriorities());
+        assertEquals(1, m.getBubbleDownLevels());
+        assertEquals(3, m.getMoves());
+
+        long total = 0;
+        for (long n : m.getAddLatencyHistogram()) total += n;
+        assertEquals(3, total);
+        assertEquals(m.getCompares() / 5.0, m.getComparesPerOperation(), 1e-9);
+
+        m.reset();
+        assertEquals(0, m.getCompares());
+        mh.disableMetrics();
+        mh.add(7, 7);
+        assertEquals(0, m.getAdds());
+    }
+
+    @Test
+    /** Test that a heap written with writeTo is restored by readFrom with
+     *  the same array, map and poll order */
+    public void test396Snapshot() throws IOException {
+        Random rand = new Random(7);
+        Heap<Integer,Double> mh = new Heap<Integer,Double>();
+        for (int k = 0; k < 1000; k++) mh.add(k, (double) rand.nextInt(500));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        mh.writeTo(new DataOutputStream(bytes), StreamCodec.INT, StreamCodec.DOUBLE);
+        Heap<Integer,Double> restored = Heap.readFrom(
+                new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())),
+                StreamCodec.INT, StreamCodec.DOUBLE);
+
+        assertEquals(mh.size(), restored.size());
+        assertEquals(mh.size(), restored.map.getSize());
+        assertEquals(1251, restored.map.getCapacity()); // presized, never grew
+        for (int i = 0; i < mh.size(); i++) {
+            assertEquals(mh.c.get(i).value, restored.c.get(i).value);
+            assertEquals(mh.c.get(i).priority, restored.c.get(i).priority);
+            assertEquals(Integer.valueOf(i), restored.map.get(restored.c.get(i).value));
+        }
+        // equal values that are not the same object are found too
+        assertTrue(restored.contains(Integer.valueOf(500)));
+        while (mh.size() > 0) assertEquals(mh.poll(), restored.poll());
+
+        byte[] bad = bytes.toByteArray();
+        bad[0] = 0;
+        try {
+            Heap.readFrom(new DataInputStream(new ByteArrayInputStream(bad)),
+                    StreamCodec.INT, StreamCodec.DOUBLE);
+            fail("Didn't throw an exception");
+        } catch (IOException e) {
+            // This is supposed to happen
+        }
+
+        // a corrupt size runs out of input instead of presizing for it
+        bad = bytes.toByteArray();
+        bad[4] = 0x7f;
+        try {
+            Heap.readFrom(new DataInputStream(new ByteArrayInputStream(bad)),
+                    StreamCodec.INT, StreamCodec.DOUBLE);
+            fail("Didn't throw an exception");
+        } catch (EOFException e) {
+            // This is supposed to happen
+        }
+    }
+
+    @Test
+    /** Test remove against a map of what should be left, checking the
+     *  heap invariants after each call */
+    public void test397Remove() {
+        Heap<Integer,Integer> mh = new Heap<Integer,Integer>();
+        HashMap<Integer,Integer> left = new HashMap<Integer,Integer>();
+        Random rand = new Random(44);
+        for (int i = 0; i < 500; i++) {
+            int p = rand.nextInt(100);
+            mh.add(i, p);
+            left.put(i, p);
+        }
+        HeapMetrics m = mh.enableMetrics();
+        for (int i = 0; i < 500; i += 2) {
+            assertEquals(left.remove(i), mh.remove(i));
+            assertFalse(mh.contains(i));
+            assertEquals(left.size(), mh.size());
+            assertEquals(left.size(), mh.map.getSize());
+            for (int k = 0; k < mh.size(); k++) {
+                assertEquals(Integer.valueOf(k), mh.map.get(mh.c.get(k).value));
+                if (k > 0) {
+                    assertTrue(mh.c.get((k - 1) / 2).priority <= mh.c.get(k).priority);
+                }
+            }
+        }
+        assertEquals(250, m.getRemoves());
+        try {
+            mh.remove(0);
+            fail("Didn't throw an exception");
+        } catch (IllegalArgumentException e) {
+            // This is supposed to happen
+        }
+
+        int prev = Integer.MIN_VALUE;
+        while (mh.size() > 0) {
+            int p = left.remove(mh.peek());
+            assertTrue(prev <= p);
+            mh.poll();
+            prev = p;
+        }
+        assertTrue(left.isEmpty());
+
+        // removing the only element and the last element
+        mh.add(1, 1);
+        assertEquals(Integer.valueOf(1), mh.remove(1));
+        assertEquals(0, mh.size());
+        mh.add(1, 1);
+        mh.add(2, 2);
+        assertEquals(Integer.valueOf(2), mh.remove(2));
+        assertEquals(Integer.valueOf(1), mh.peek());
+    }
+
+    @Test
+    /** Test meld and addAllFrom with small and large second heaps, which
+     *  take the sift-up and heapify paths */
+    public void test398Meld() {
+        Random rand = new Random(47);
+        for (int m : new int[]{0, 3, 50, 1000}) {
+            Heap<Integer,Integer> a = new Heap<Integer,Integer>();
+            Heap<Integer,Integer> b = new Heap<Integer,Integer>();
+            Heap<Integer,Integer> copy = new Heap<Integer,Integer>();
+            HashMap<Integer,Integer> all = new HashMap<Integer,Integer>();
+            for (int i = 0; i < 200; i++) {
+                int p = rand.nextInt(100);
+                a.add(i, p);
+                all.put(i, p);
+            }
+            for (int i = 0; i < m; i++) {
+                int p = rand.nextInt(100);
+                b.add(-i - 1, p);
+                copy.add(-i - 1, p);
+                all.put(-i - 1, p);
+            }
+            Heap<Integer,Integer> a2 = new Heap<Integer,Integer>();
+            for (int i = 0; i < 200; i++) a2.add(i, all.get(i));
+
+            a.meld(b);
+            assertEquals(0, b.size());
+            assertFalse(b.contains(-1));
+            a2.addAllFrom(copy);
+            assertEquals(m, copy.size());
+            for (Heap<Integer,Integer> h : Arrays.asList(a, a2)) {
+                assertEquals(200 + m, h.size());
+                for (int k = 0; k < h.size(); k++) {
+                    assertEquals(Integer.valueOf(k), h.map.get(h.c.get(k).value));
+                }
+                int prev = Integer.MIN_VALUE;
+                HashMap<Integer,Integer> left = new HashMap<Integer,Integer>(all);
+                while (h.size() > 0) {
+                    int p = left.remove(h.peek());
+                    assertTrue(prev <= p);
+                    h.poll();
+                    prev = p;
+                }
+                assertTrue(left.isEmpty());
+            }
+        }
+
+        Heap<Integer,Integer> a = new Heap<Integer,Integer>();
+        Heap<Integer,Integer> b = new Heap<Integer,Integer>();
+        a.add(1, 1);
+        b.add(2, 2);
+        b.add(1, 3);
+        try {
+            a.meld(b);
+            fail("Didn't throw an exception");
+        } catch (IllegalArgumentException e) {
+            // This is supposed to happen
+        }
+        assertEquals(1, a.size());
+        assertEquals(2, b.size());
+        try {
+            a.meld(a);
+            fail("Didn't throw an exception");
+        } catch (IllegalArgumentException e) {
+            // This is supposed to happen
+        }
+    }
+
+    @Test
+    /** Test building heaps from arrays, sequentially and in parallel */
+    public void test399Build() throws Exception {
+        Random rand = new Random(48);
+        ForkJoinPool pool = new ForkJoinPool(3);
+        for (int n : new int[]{0, 1, 2, 7, 1000, 100000}) {
+            Integer[] values = new Integer[n];
+            Integer[] priorities = new Integer[n];
+            for (int i = 0; i < n; i++) {
+                values[i] = i;
+                priorities[i] = rand.nextInt(n);
+            }
+            Heap<Integer,Integer> par = pool.submit(
+                    () -> Heap.parallelOf(values, priorities)).get();
+            for (Heap<Integer,Integer> h : Arrays.asList(Heap.of(values, priorities),
+                    Heap.parallelOf(values, priorities), par)) {
+                assertEquals(n, h.size());
+                assertEquals(n, h.map.getSize());
+                for (int k = 0; k < n; k++) {
+                    assertEquals(Integer.valueOf(k), h.map.get(h.c.get(k).value));
+                    if (k > 0) {
+                        assertTrue(h.c.get((k - 1) / 2).priority <= h.c.get(k).priority);
+                    }
+                }
+            }
+        }
+        pool.shutdown();
+
+        Integer[] dups = new Integer[50000];
+        for (int i = 0; i < dups.length; i++) dups[i] = i;
+        dups[40000] = 17;
+        for (boolean parallel : new boolean[]{false, true}) {
+            try {
+                if (parallel) Heap.parallelOf(dups, dups);
+                else Heap.of(dups, dups);
+                fail("Didn't throw an exception");
+            } catch (IllegalArgumentException e) {
+                // This is supposed to happen
+            }
+        }
+        try {
+            Heap.of(new Integer[2], new Integer[3]);
+            fail("Didn't throw an exception");
+        } catch (IllegalArgumentException e) {
+            // This is supposed to happen
+        }
+    }
 }
@@ -4,6 +4,9 @@ import static org.junit.Assert.*;
 import org.junit.FixMethodOrder;
 
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Spliterator;
+import java.util.stream.StreamSupport;
 
 import org.junit.Rule;
 import org.junit.rules.Timeout;
@@ -97,4 +100,195 @@ public class AListTest {
         }
         assertEquals(16, al.getCap());
     }
+
+
+    @Test
+    /** Test that resize grows far enough when the new size is more than
+     * twice the capacity, and that shrinking clears removed elements. */
+    public void test40ResizePastDouble() {
+        AList<Integer> al = new AList<Integer>(4);
+        al.resize(100);
+        assertEquals(100, al.size());
+        assertEquals(128, al.getCap());
+        al.put(99, 99);
+        assertEquals(Integer.valueOf(99), al.get(99));
+
+        al.resize(10);
+        al.resize(100);
+        assertEquals(null, al.get(99));
+    }
+
+
+    @Test
+    /** Test ensureCapacity and trimToSize */
+    public void test50EnsureCapacityTrim() {
+        AList<Integer> al = new AList<Integer>();
+        al.ensureCapacity(1000);
+        assertEquals(0, al.size());
+        assertEquals(1024, al.getCap());
+        al.ensureCapacity(10);
+        assertEquals(1024, al.getCap()); // never shrinks
+
+        for (int i = 0; i < 5; i++) al.append(i);
+        al.trimToSize();
+        assertEquals(5, al.getCap());
+        for (int i = 0; i < 5; i++) {
+            assertEquals(Integer.valueOf(i), al.get(i));
+        }
+        al.append(5);
+        assertEquals(10, al.getCap());
+
+        al = new AList<Integer>(0);
+        al.trimToSize();
+        al.append(1);
+        assertEquals(1, al.getCap());
+    }
+
+
+    @Test
+    /** Test each growth policy */
+    public void test60GrowthPolicy() {
+        AList<Integer> al = new AList<Integer>(8, GrowthPolicy.ONE_AND_A_HALF);
+        for (int i = 0; i < 9; i++) al.append(i);
+        assertEquals(12, al.getCap());
+        al.resize(20);
+        assertEquals(27, al.getCap());
+
+        al = new AList<Integer>(8, GrowthPolicy.fixedStep(100));
+        for (int i = 0; i < 9; i++) al.append(i);
+        assertEquals(108, al.getCap());
+        al.resize(500);
+        assertEquals(500, al.getCap()); // one step is not enough
+        for (int i = 0; i < 9; i++) {
+            assertEquals(Integer.valueOf(i), al.get(i));
+        }
+
+        try {
+            GrowthPolicy.fixedStep(0);
+            fail("Didn't throw an exception");
+        } catch (IllegalArgumentException e) {
+            // This is supposed to happen
+        }
+
+        // a policy that overflows still grows to the size asked for
+        al = new AList<Integer>(8, (capacity, minCapacity) -> capacity * Integer.MAX_VALUE);
+        al.resize(9);
+        assertEquals(9, al.getCap());
+    }
+
+    @Test
+    /** Test that appendAll reports a size past the largest array instead
+     *  of overflowing */
+    public void test65AppendAllOverflow() {
+        AList<Integer> al = new AList<Integer>(8);
+        al.size = GrowthPolicy.MAX_CAPACITY - 5; // pretend, without the memory
+        try {
+            al.appendAll(new Integer[10]);
+            fail("Didn't throw an exception");
+        } catch (OutOfMemoryError e) {
+            // This is supposed to happen
+        }
+        assertEquals(8, al.getCap());
+    }
+
+
+    @Test
+    /** Test appendAll from arrays and other ALists */
+    public void test70AppendAll() {
+        AList<Integer> al = new AList<Integer>(2);
+        al.append(0);
+        al.appendAll(new Integer[]{1, 2, 3, 4, 5, 6, 7, 8, 9});
+        assertEquals(10, al.size());
+        assertEquals(16, al.getCap());
+
+        AList<Integer> other = new AList<Integer>();
+        other.append(10);
+        other.append(11);
+        al.appendAll(other);
+        al.appendAll(new AList<Integer>());
+        assertEquals(12, al.size());
+        for (int i = 0; i < 12; i++) {
+            assertEquals(Integer.valueOf(i), al.get(i));
+        }
+    }
+
+
+    @Test
+    /** Test removeRange and truncate */
+    public void test80RemoveRange() {
+        AList<Integer> al = new AList<Integer>();
+        for (int i = 0; i < 10; i++) al.append(i);
+        al.removeRange(2, 5);
+        assertEquals(7, al.size());
+        Integer[] expected = new Integer[]{0, 1, 5, 6, 7, 8, 9};
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], al.get(i));
+        }
+        al.resize(8);
+        assertEquals(null, al.get(7)); // cleared for the garbage collector
+        al.pop();
+
+        al.truncate(3);
+        assertEquals(3, al.size());
+        assertEquals(Integer.valueOf(5), al.get(2));
+        assertEquals(16, al.getCap());
+
+        try {
+            al.removeRange(2, 4);
+            fail("Didn't throw an exception");
+        } catch (ArrayIndexOutOfBoundsException e) {
+            // This is supposed to happen
+        }
+    }
+
+
+    @Test
+    /** Test sort and binarySearch */
+    public void test90SortSearch() {
+        AList<Integer> al = new AList<Integer>(4);
+        Integer[] vals = new Integer[]{5, 3, 9, 1, 7};
+        al.appendAll(vals);
+        al.sort(Integer::compare);
+        Arrays.sort(vals);
+        for (int i = 0; i < vals.length; i++) {
+            assertEquals(vals[i], al.get(i));
+        }
+
+        assertEquals(2, al.binarySearch(5, Integer::compare));
+        assertEquals(-1, al.binarySearch(0, Integer::compare));
+        assertEquals(-6, al.binarySearch(10, Integer::compare));
+
+        al.sort(Collections.reverseOrder());
+        assertEquals(Integer.valueOf(9), al.get(0));
+    }
+
+
+    @Test
+    /** Test iteration, and sequential and parallel streams */
+    public void test95Streams() {
+        AList<Integer> al = new AList<Integer>();
+        int sum = 0;
+        for (Integer i : al) sum += i;
+        assertEquals(0, sum);
+
+        for (int i = 0; i < 10000; i++) al.append(i);
+        for (Integer i : al) sum += i;
+        assertEquals(49995000, sum);
+
+        assertEquals(49995000L, StreamSupport.stream(al.spliterator(), false)
+                .mapToLong(Integer::longValue).sum());
+        assertEquals(49995000L, StreamSupport.stream(al.spliterator(), true)
+                .mapToLong(Integer::longValue).sum());
+        assertEquals(5000, StreamSupport.stream(al.spliterator(), true)
+                .filter(i -> i % 2 == 0).count());
+        assertEquals(Integer.valueOf(9999), StreamSupport.stream(al.spliterator(), true)
+                .reduce(Integer::max).get());
+
+        Spliterator<Integer> s = al.spliterator();
+        assertTrue(s.hasCharacteristics(Spliterator.SUBSIZED));
+        Spliterator<Integer> prefix = s.trySplit();
+        assertEquals(5000, prefix.estimateSize());
+        assertEquals(5000, s.estimateSize());
+        assertTrue(prefix.tryAdvance(i -> assertEquals(Integer.valueOf(0), i)));
+    }
 }
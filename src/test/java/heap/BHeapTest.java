@@ -0,0 +1,163 @@
+package heap;
+
+import static org.junit.Assert.*;
+import org.junit.FixMethodOrder;
+
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class BHeapTest {
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(5); // 5sec timeout
+
+    /* Check the class invariants of h, comparing each slot with the
+     * children the layout gives it. */
+    static void assertInvariants(BHeap<Integer> h) {
+        int mask = h.blockSize() - 1;
+        int half = h.blockSize() / 2;
+        int filled = 0;
+        for (int k = 0; k < h.c.size(); k++) {
+            BHeap<Integer>.Node e = h.c.get(k);
+            if ((k & mask) == 0 || k > mask && (k & mask) == 1) {
+                assertNull(e);
+                continue;
+            }
+            filled++;
+            assertSame(e, h.map.get(e.value));
+            assertEquals(k, e.index);
+            long p = h.keys.get(k);
+            int j = k & mask;
+            long left = j < half ? k + j
+                    : ((((long) k / h.blockSize()) * half + j - half + 1)
+                            * h.blockSize() + 2);
+            long right = left + 1;
+            for (long child : new long[] {left, right}) {
+                if (child < h.c.size()) {
+                    assertTrue(p <= h.keys.get((int) child));
+                }
+            }
+        }
+        assertEquals(h.c.size(), h.keys.size());
+        assertEquals(h.size(), filled);
+        assertEquals(h.size(), h.map.getSize());
+    }
+
+    @Test
+    /** Test the basic operations on a few values */
+    public void test10Basics() {
+        BHeap<String> h = new BHeap<String>();
+        assertEquals(BHeap.PAGE, h.blockSize());
+        try {
+            h.peek();
+            fail("Didn't throw an exception");
+        } catch (NoSuchElementException e) {
+            // This is supposed to happen
+        }
+        h.add("c", 3);
+        h.add("a", 1);
+        h.add("e", 5);
+        h.add("b", 2);
+        h.add("d", 4);
+        assertEquals(5, h.size());
+        assertEquals("a", h.peek());
+        assertEquals(1, h.peekPriority());
+        try {
+            h.add("a", 9);
+            fail("Didn't throw an exception");
+        } catch (IllegalArgumentException e) {
+            // This is supposed to happen
+        }
+        assertEquals("a", h.poll());
+        h.changePriority("e", 0);
+        assertEquals("e", h.poll());
+        assertEquals(3, h.remove("c"));
+        assertFalse(h.contains("c"));
+        assertEquals("b", h.poll());
+        assertEquals("d", h.poll());
+        assertEquals(0, h.size());
+        try {
+            new BHeap<String>(10, 24);
+            fail("Didn't throw an exception");
+        } catch (IllegalArgumentException e) {
+            // This is supposed to happen
+        }
+    }
+
+    @Test
+    /** Test that values fill blocks in order, skipping each block's unused
+     *  slots, and that sibling block roots hang below one leaf of their
+     *  parent block */
+    public void test20Layout() {
+        BHeap<Integer> h = new BHeap<Integer>(10, 4);
+        for (int i = 0; i < 12; i++) h.add(i, i);
+        int[] slots = {1, 2, 3, 6, 7, 10, 11, 14, 15, 18, 19, 22};
+        for (int i = 0; i < 12; i++) assertEquals(slots[i], h.map.get(i).index);
+        // blocks 1 and 2 hang below leaves 2 and 3 of block 0, and block 5
+        // below leaf 2 of block 2, so the path from slot 22 to the root is
+        // 22, 10, 3, 1
+        h.changePriority(11, -1);
+        assertEquals(Integer.valueOf(11), h.peek());
+        assertEquals(22, h.map.get(5).index);
+        assertEquals(10, h.map.get(2).index);
+        assertEquals(3, h.map.get(0).index);
+        assertInvariants(h);
+        for (int i = 0; i < 12; i++) h.poll();
+        assertEquals(0, h.c.size());
+    }
+
+    @Test
+    /** Test random operations against a sorted set for several block
+     *  sizes, including the flat layout */
+    public void test30Random() {
+        for (int blockSize : new int[] {4, BHeap.CACHE_LINE, 32, BHeap.FLAT}) {
+            Random rand = new Random(50 + blockSize);
+            BHeap<Integer> h = new BHeap<Integer>(10, blockSize);
+            // (priority, value) pairs encoded in a long
+            TreeSet<Long> expected = new TreeSet<Long>();
+            TreeMap<Integer, Integer> prio = new TreeMap<Integer, Integer>();
+            for (int step = 0; step < 20000; step++) {
+                int op = rand.nextInt(5);
+                if (op < 2 || prio.isEmpty()) {
+                    int v = rand.nextInt(2000);
+                    if (prio.containsKey(v)) continue;
+                    int p = rand.nextInt(300);
+                    h.add(v, p);
+                    prio.put(v, p);
+                    expected.add((long) p << 32 | v);
+                } else if (op == 2) {
+                    // with ties, any value of the smallest priority may come out
+                    long first = expected.first() >>> 32;
+                    int v = h.poll();
+                    assertEquals(first, (long) prio.get(v));
+                    assertTrue(expected.remove((long) prio.remove(v) << 32 | v));
+                } else {
+                    Integer k = prio.ceilingKey(rand.nextInt(2000));
+                    int v = k == null ? prio.firstKey() : k;
+                    expected.remove((long) prio.get(v) << 32 | v);
+                    if (op == 3) {
+                        int p = rand.nextInt(300);
+                        h.changePriority(v, p);
+                        prio.put(v, p);
+                        expected.add((long) p << 32 | v);
+                    } else {
+                        assertEquals((long) prio.remove(v), h.remove(v));
+                    }
+                }
+                assertEquals(prio.size(), h.size());
+                if (step % 50 == 0) assertInvariants(h);
+                if (h.size() > 0) {
+                    assertEquals(expected.first() >>> 32, h.peekPriority());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package heap;
+
+import static org.junit.Assert.*;
+import org.junit.FixMethodOrder;
+
+import java.util.NoSuchElementException;
+
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class ChunkedAListTest {
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(3); // 3sec timeout
+
+    @Test
+    /** Test that capacity grows one chunk at a time */
+    public void test10Capacity() {
+        ChunkedAList<Integer> al = new ChunkedAList<Integer>(4);
+        assertEquals(0, al.size());
+        assertEquals(0, al.getCap());
+
+        al.resize(1);
+        assertEquals(16, al.getCap());
+        al.resize(17);
+        assertEquals(32, al.getCap());
+        al.resize(1000);
+        assertEquals(1008, al.getCap());
+
+        al.resize(20);
+        al.trimToSize();
+        assertEquals(32, al.getCap());
+        al.resize(0);
+        al.trimToSize();
+        assertEquals(0, al.getCap());
+    }
+
+    @Test
+    /** Test append, get, put and pop across many chunks */
+    public void test20AppendPop() {
+        ChunkedAList<Integer> al = new ChunkedAList<Integer>(3);
+        for (int i = 0; i < 1000; i++) {
+            al.append(i);
+            assertEquals(i + 1, al.size());
+        }
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(Integer.valueOf(i), al.get(i));
+            al.put(i, -i);
+        }
+        for (int i = 999; i >= 0; i--) {
+            assertEquals(Integer.valueOf(-i), al.pop());
+            try {
+                al.get(i);
+                fail("Didn't throw an exception");
+            } catch (ArrayIndexOutOfBoundsException e) {
+                // This is supposed to happen
+            }
+        }
+        try {
+            al.pop();
+            fail("Didn't throw an exception");
+        } catch (NoSuchElementException e) {
+            // This is supposed to happen
+        }
+    }
+
+    @Test
+    /** Test that shrinking clears removed elements */
+    public void test30ResizeClears() {
+        ChunkedAList<Integer> al = new ChunkedAList<Integer>();
+        for (int i = 0; i < 50; i++) al.append(i);
+        al.resize(10);
+        al.resize(50);
+        assertEquals(Integer.valueOf(9), al.get(9));
+        assertNull(al.get(10));
+        assertNull(al.get(49));
+    }
+
+    @Test
+    /** Test that a capacity past Integer.MAX_VALUE stops growth instead of
+     *  overflowing */
+    public void test40CapacityOverflow() {
+        ChunkedAList<Integer> al = new ChunkedAList<Integer>(30);
+        al.chunkCount = 2; // pretend, without the memory
+        assertEquals(1L << 31, al.getCap());
+        al.growIfNeeded(Integer.MAX_VALUE);
+        assertEquals(2, al.chunkCount);
+    }
+}
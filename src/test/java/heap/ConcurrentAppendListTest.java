@@ -0,0 +1,90 @@
+package heap;
+
+import static org.junit.Assert.*;
+import org.junit.FixMethodOrder;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class ConcurrentAppendListTest {
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(10); // 10sec timeout
+
+    @Test
+    /** Test append and get from a single thread across several chunks */
+    public void test10SingleThread() {
+        ConcurrentAppendList<Integer> l = new ConcurrentAppendList<Integer>(2);
+        assertEquals(0, l.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, l.append(i));
+            assertEquals(i + 1, l.size());
+        }
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(Integer.valueOf(i), l.get(i));
+        }
+        try {
+            l.get(1000);
+            fail("Didn't throw an exception");
+        } catch (ArrayIndexOutOfBoundsException e) {
+            // This is supposed to happen
+        }
+        try {
+            l.append(null);
+            fail("Didn't throw an exception");
+        } catch (NullPointerException e) {
+            // This is supposed to happen
+        }
+    }
+
+    @Test
+    /** Test that concurrent producers lose no values and that a reader
+     * only ever sees a fully written prefix */
+    public void test20Producers() throws InterruptedException {
+        final ConcurrentAppendList<Integer> l = new ConcurrentAppendList<Integer>(4);
+        final int producers = 8;
+        final int each = 20000;
+        final AtomicBoolean done = new AtomicBoolean();
+        final AtomicBoolean readerFailed = new AtomicBoolean();
+
+        Thread reader = new Thread(() -> {
+            int last = 0;
+            while (!done.get()) {
+                int n = l.size();
+                if (n < last) readerFailed.set(true);
+                for (int i = last; i < n; i++) {
+                    if (l.get(i) == null) readerFailed.set(true);
+                }
+                last = n;
+            }
+        });
+        reader.start();
+
+        Thread[] ts = new Thread[producers];
+        for (int t = 0; t < producers; t++) {
+            final int id = t;
+            ts[t] = new Thread(() -> {
+                for (int i = 0; i < each; i++) l.append(id * each + i);
+            });
+            ts[t].start();
+        }
+        for (Thread t : ts) t.join();
+        done.set(true);
+        reader.join();
+
+        assertFalse("reader saw an unwritten element or a shrinking size",
+                readerFailed.get());
+        assertEquals(producers * each, l.size());
+        boolean[] seen = new boolean[producers * each];
+        for (int i = 0; i < l.size(); i++) {
+            int v = l.get(i);
+            assertFalse("value appended twice", seen[v]);
+            seen[v] = true;
+        }
+    }
+}
@@ -0,0 +1,310 @@
+package heap;
+
+import static org.junit.Assert.*;
+import org.junit.FixMethodOrder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Rule;
+import org.junit.rules.TemporaryFolder;
+import org.junit.rules.Timeout;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class DurableTableTest {
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(20); // 20sec timeout
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    /** Return n random operations on a small key space: {key, value}
+     * pairs, where a null value means remove. */
+    private List<String[]> randomOps(Random rand, int n) {
+        List<String[]> ops = new ArrayList<String[]>();
+        for (int i = 0; i < n; i++) {
+            String k = "key" + rand.nextInt(50);
+            String v = rand.nextInt(4) == 0 ? null : "v" + i;
+            ops.add(new String[]{k, v});
+        }
+        return ops;
+    }
+
+    private void apply(DurableTable t, String[] op) throws IOException {
+        if (op[1] == null) t.remove(op[0]);
+        else t.put(op[0], op[1]);
+    }
+
+    /** Return the mapping after the first n of ops */
+    private Map<String,String> model(List<String[]> ops, int n) {
+        Map<String,String> m = new HashMap<String,String>();
+        for (int i = 0; i < n; i++) {
+            String[] op = ops.get(i);
+            if (op[1] == null) m.remove(op[0]);
+            else m.put(op[0], op[1]);
+        }
+        return m;
+    }
+
+    private void check(String msg, Map<String,String> truth, DurableTable t) {
+        assertEquals(msg, truth.size(), t.getSize());
+        for (Map.Entry<String,String> e : truth.entrySet()) {
+            assertEquals(msg, e.getValue(), t.get(e.getKey()));
+        }
+    }
+
+    /** Copy the files of dir into a new directory, as a crash would leave
+     * them, without closing the table that owns dir. */
+    private Path crashCopy(Path dir) throws IOException {
+        Path copy = tmp.newFolder().toPath();
+        for (File f : dir.toFile().listFiles()) {
+            Files.copy(f.toPath(), copy.resolve(f.getName()),
+                    StandardCopyOption.REPLACE_EXISTING);
+        }
+        return copy;
+    }
+
+    @Test
+    /** Test that a table reopened after close has the same mapping */
+    public void test10Reopen() throws IOException {
+        Path dir = tmp.newFolder().toPath();
+        List<String[]> ops = randomOps(new Random(1), 500);
+        DurableTable t = DurableTable.open(dir);
+        for (String[] op : ops) apply(t, op);
+        t.close();
+
+        t = DurableTable.open(dir);
+        check("reopened table", model(ops, ops.size()), t);
+        assertNull(t.put("new", "v1000"));
+        t.close();
+    }
+
+    @Test
+    /** Test that every synchronous write survives a crash of the writer */
+    public void test20CrashAfterSyncWrites() throws IOException {
+        Path dir = tmp.newFolder().toPath();
+        List<String[]> ops = randomOps(new Random(2), 300);
+        DurableTable t = DurableTable.open(dir);
+        Random rand = new Random(3);
+        int done = 0;
+        for (int crash = 0; crash < 5; crash++) {
+            int stop = done + rand.nextInt(60);
+            for (; done < stop; done++) apply(t, ops.get(done));
+            DurableTable r = DurableTable.open(crashCopy(dir));
+            check("recovered after " + done + " ops", model(ops, done), r);
+            r.close();
+        }
+        t.close();
+    }
+
+    @Test
+    /** Test that a log cut at a record boundary, just after one or at a
+     * random point recovers a prefix of the operations, and that the table
+     * keeps working afterwards */
+    public void test30TornLog() throws IOException {
+        Path dir = tmp.newFolder().toPath();
+        List<String[]> ops = randomOps(new Random(4), 20);
+        DurableTable t = DurableTable.open(dir);
+        long[] ends = new long[ops.size() + 1];
+        File log = dir.resolve("wal-0.log").toFile();
+        for (int i = 0; i < ops.size(); i++) {
+            apply(t, ops.get(i));
+            ends[i + 1] = log.length();
+        }
+        t.close();
+
+        List<Long> cuts = new ArrayList<Long>();
+        Random rand = new Random(5);
+        for (long end : ends) {
+            cuts.add(end);
+            cuts.add(end + 1);
+            cuts.add((long) rand.nextInt((int) ends[ops.size()]));
+        }
+        for (long cut : cuts) {
+            if (cut > ends[ops.size()]) continue;
+            Path copy = crashCopy(dir);
+            try (RandomAccessFile f = new RandomAccessFile(
+                    copy.resolve("wal-0.log").toFile(), "rw")) {
+                f.setLength(cut);
+            }
+            int n = 0;
+            while (n < ops.size() && ends[n + 1] <= cut) n++;
+            DurableTable r = DurableTable.open(copy);
+            check("log cut at byte " + cut, model(ops, n), r);
+            r.put("after", "crash");
+            r.close();
+
+            r = DurableTable.open(copy);
+            assertEquals("after", "crash", r.get("after"));
+            r.close();
+        }
+    }
+
+    @Test
+    /** Test that a corrupt record ends replay */
+    public void test40CorruptRecord() throws IOException {
+        Path dir = tmp.newFolder().toPath();
+        DurableTable t = DurableTable.open(dir);
+        t.put("a", "1");
+        long mid = dir.resolve("wal-0.log").toFile().length();
+        t.put("b", "2");
+        t.put("c", "3");
+        t.close();
+
+        try (RandomAccessFile f = new RandomAccessFile(
+                dir.resolve("wal-0.log").toFile(), "rw")) {
+            f.seek(mid + 10);
+            f.write('x');
+        }
+        t = DurableTable.open(dir);
+        assertEquals(1, t.getSize());
+        assertEquals("1", t.get("a"));
+        t.close();
+    }
+
+    @Test
+    /** Test compaction into a snapshot, explicit and in the background.
+     * The background compaction is held at each of its steps while a copy
+     * of the directory is recovered, as a crash at that point would leave
+     * it. */
+    public void test50Compact() throws Exception {
+        Path dir = tmp.newFolder().toPath();
+        List<String[]> ops = randomOps(new Random(6), 2000);
+        DurableTable t = new DurableTable(dir, 5, 4096);
+        for (int i = 0; i < 1000; i++) apply(t, ops.get(i));
+        t.compact();
+        assertTrue(Files.exists(dir.resolve("snapshot")));
+        assertFalse(Files.exists(dir.resolve("wal-0.log")));
+
+        BlockingQueue<String> reached = new LinkedBlockingQueue<String>();
+        Semaphore resume = new Semaphore(0);
+        t.compactHook = step -> {
+            reached.add(step);
+            resume.acquireUninterruptibly();
+        };
+        for (int i = 1000; i < ops.size(); i++) apply(t, ops.get(i));
+        t.sync();
+
+        // the log is now well past 4096 bytes, so the flusher compacts it
+        for (String step : new String[] {"rotated", "written", "renamed", "deleted"}) {
+            assertEquals(step, reached.poll(10, TimeUnit.SECONDS));
+            DurableTable r = DurableTable.open(crashCopy(dir));
+            check("recovered with compaction " + step, model(ops, ops.size()), r);
+            r.close();
+            if (step.equals("deleted")) t.compactHook = null;
+            resume.release();
+        }
+        assertFalse(Files.exists(dir.resolve("wal-1.log")));
+        t.close();
+
+        t = DurableTable.open(dir);
+        check("reopened after compaction", model(ops, ops.size()), t);
+        t.close();
+    }
+
+    @Test
+    /** Test that an oversized value or key is rejected before it reaches
+     * the log, so the writes around it survive a reopen */
+    public void test55OversizedValue() throws IOException {
+        Path dir = tmp.newFolder().toPath();
+        DurableTable t = DurableTable.open(dir);
+        t.put("a", "1");
+        char[] big = new char[(1 << 26) + 1];
+        Arrays.fill(big, 'x');
+        try {
+            t.put("big", new String(big));
+            fail("Didn't throw an exception");
+        } catch (IllegalArgumentException e) {
+            // This is supposed to happen
+        }
+        try {
+            t.put(new String(big, 0, PackedKeyTable.MAX_KEY_LENGTH + 1), "v");
+            fail("Didn't throw an exception");
+        } catch (IllegalArgumentException e) {
+            // This is supposed to happen
+        }
+        assertFalse(t.containsKey("big"));
+        t.put("c", "3");
+        t.close();
+
+        t = DurableTable.open(dir);
+        assertEquals(2, t.getSize());
+        assertEquals("1", t.get("a"));
+        assertEquals("3", t.get("c"));
+        t.close();
+    }
+
+    @Test
+    /** Test that a key with a char above 255 is rejected before it reaches
+     * the log, in both sync modes, and is not stored under a truncated key
+     * or brought back by a reopen */
+    public void test57WideCharKey() throws IOException {
+        for (long syncMillis : new long[] {0, 50}) {
+            Path dir = tmp.newFolder().toPath();
+            DurableTable t = new DurableTable(dir, syncMillis, 64L << 20);
+            t.put("a", "1");
+            for (int op = 0; op < 2; op++) {
+                try {
+                    if (op == 0) t.put("\u0141x", "v");
+                    else t.remove("\u0141x");
+                    fail("Didn't throw an exception");
+                } catch (IllegalArgumentException e) {
+                    // This is supposed to happen
+                }
+            }
+            assertEquals(1, t.getSize());
+            assertNull(t.get("Ax"));
+            t.close();
+
+            t = new DurableTable(dir, syncMillis, 64L << 20);
+            assertEquals(1, t.getSize());
+            assertEquals("1", t.get("a"));
+            assertNull(t.get("Ax"));
+            t.close();
+        }
+    }
+
+    @Test
+    /** Test group commit with a background sync interval and several
+     * writer threads */
+    public void test60GroupCommit() throws Exception {
+        Path dir = tmp.newFolder().toPath();
+        final DurableTable t = new DurableTable(dir, 2, 1 << 20);
+        Thread[] writers = new Thread[4];
+        for (int w = 0; w < writers.length; w++) {
+            final int id = w;
+            writers[w] = new Thread(() -> {
+                try {
+                    for (int i = 0; i < 500; i++) t.put("w" + id + "k" + i, "" + i);
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            writers[w].start();
+        }
+        for (Thread w : writers) w.join();
+        t.close();
+
+        DurableTable r = DurableTable.open(dir);
+        assertEquals(2000, r.getSize());
+        assertEquals("499", r.get("w3k499"));
+        r.close();
+    }
+}
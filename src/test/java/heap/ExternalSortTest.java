@@ -0,0 +1,150 @@
+package heap;
+
+import static org.junit.Assert.*;
+import org.junit.FixMethodOrder;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.rules.TemporaryFolder;
+import org.junit.rules.Timeout;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class ExternalSortTest {
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(10); // 10sec timeout
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    /* Write values to a new file with codec and return its path */
+    <T> Path write(StreamCodec<T> codec, List<T> values) throws IOException {
+        Path p = tmp.newFile().toPath();
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(p)))) {
+            for (T v : values) codec.write(out, v);
+        }
+        return p;
+    }
+
+    /* Read every record of p with codec */
+    <T> List<T> read(StreamCodec<T> codec, Path p) throws IOException {
+        List<T> values = new ArrayList<T>();
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(p)))) {
+            while (true) values.add(codec.read(in));
+        } catch (EOFException e) {
+            return values;
+        }
+    }
+
+    @Test
+    /** Test sorting longs with several runs and merge passes */
+    public void test10Sort() throws IOException {
+        Random rand = new Random(42);
+        List<Long> values = new ArrayList<Long>();
+        for (int i = 0; i < 20000; i++) values.add(rand.nextLong() % 1000);
+        Path in = write(StreamCodec.LONG, values);
+        Path out = tmp.getRoot().toPath().resolve("sorted");
+        Path runs = tmp.newFolder().toPath();
+
+        for (int[] cfg : new int[][] {{100, 2}, {333, 4}, {20000, 64}, {50000, 2}}) {
+            ExternalSort<Long> s = new ExternalSort<Long>(StreamCodec.LONG,
+                    cfg[0], cfg[1], runs);
+            assertEquals(values.size(), s.sort(in, out));
+            List<Long> expected = new ArrayList<Long>(values);
+            Collections.sort(expected);
+            assertEquals(expected, read(StreamCodec.LONG, out));
+            assertEquals(0, runs.toFile().list().length);
+        }
+    }
+
+    @Test
+    /** Test empty input and variable-length records */
+    public void test20Strings() throws IOException {
+        Path runs = tmp.newFolder().toPath();
+        Path out = tmp.getRoot().toPath().resolve("sorted");
+        ExternalSort<String> s = new ExternalSort<String>(StreamCodec.STRING, 3, runs);
+        assertEquals(0, s.sort(write(StreamCodec.STRING, new ArrayList<String>()), out));
+        assertEquals(0, Files.size(out));
+
+        List<String> words = Arrays.asList("pear", "", "apple", "fig", "kiwi",
+                "banana", "fig", "cherry");
+        assertEquals(8, s.sort(write(StreamCodec.STRING, words), out));
+        List<String> expected = new ArrayList<String>(words);
+        Collections.sort(expected);
+        assertEquals(expected, read(StreamCodec.STRING, out));
+    }
+
+    @Test
+    /** Test merging runs that are already sorted */
+    public void test30Merge() throws IOException {
+        List<Path> runs = new ArrayList<Path>();
+        runs.add(write(StreamCodec.INT, Arrays.asList(1, 4, 7)));
+        runs.add(write(StreamCodec.INT, new ArrayList<Integer>()));
+        runs.add(write(StreamCodec.INT, Arrays.asList(2, 2, 9)));
+        runs.add(write(StreamCodec.INT, Arrays.asList(0)));
+        Path out = tmp.getRoot().toPath().resolve("merged");
+        ExternalSort<Integer> s = new ExternalSort<Integer>(StreamCodec.INT, 10,
+                tmp.getRoot().toPath());
+        assertEquals(7, s.merge(runs, out));
+        assertEquals(Arrays.asList(0, 1, 2, 2, 4, 7, 9), read(StreamCodec.INT, out));
+    }
+
+    @Test
+    /** Test that replaceTop reuses the root entry for the same value */
+    public void test40ReplaceTopReuse() {
+        Heap<Integer, Integer> h = new Heap<Integer, Integer>();
+        for (int i = 0; i < 5; i++) h.add(i, i);
+        Object root = h.c.get(0);
+        assertEquals(Integer.valueOf(0), h.replaceTop(0, 10));
+        assertSame(root, h.c.get(3));
+        assertEquals(Integer.valueOf(3), h.map.get(0));
+        for (int i = 1; i < 5; i++) assertEquals(Integer.valueOf(i), h.poll());
+        assertEquals(Integer.valueOf(0), h.poll());
+    }
+
+    @Test
+    /** Test that closeAll closes every stream when some close() calls
+     *  throw, and does not hide an earlier failure */
+    public void test50CloseAll() {
+        int[] closed = new int[1];
+        Closeable ok = () -> closed[0]++;
+        Closeable bad = () -> {
+            closed[0]++;
+            throw new IOException("close");
+        };
+        Closeable[] streams = {bad, null, ok, bad, ok};
+        try {
+            ExternalSort.closeAll(streams, null);
+            fail("Didn't throw an exception");
+        } catch (IOException e) {
+            assertEquals(1, e.getSuppressed().length);
+        }
+        assertEquals(4, closed[0]);
+
+        IOException failure = new IOException("merge");
+        try {
+            ExternalSort.closeAll(streams, failure);
+        } catch (IOException e) {
+            fail("Threw from close instead of suppressing: " + e);
+        }
+        assertEquals(8, closed[0]);
+        assertEquals(2, failure.getSuppressed().length);
+    }
+}
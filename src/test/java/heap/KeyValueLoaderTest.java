@@ -0,0 +1,155 @@
+package heap;
+
+import static org.junit.Assert.*;
+import org.junit.FixMethodOrder;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Scanner;
+
+import org.junit.Rule;
+import org.junit.rules.TemporaryFolder;
+import org.junit.rules.Timeout;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class KeyValueLoaderTest {
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(10); // 10sec timeout
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    /** Return the mapping in file as read by java.util.Scanner */
+    private HashMap<String,String> scannerLoad(File file)
+            throws FileNotFoundException {
+        HashMap<String,String> truth = new HashMap<String,String>();
+        Scanner sc = new Scanner(file);
+        while (sc.hasNext()) {
+            truth.put(sc.next(), sc.next());
+        }
+        sc.close();
+        return truth;
+    }
+
+    private void check(String m, Map<String,String> truth,
+            PackedKeyTable<String> t) {
+        assertEquals(m, truth.size(), t.getSize());
+        for (Map.Entry<String,String> e : truth.entrySet()) {
+            assertEquals(m, e.getValue(), t.get(e.getKey()));
+        }
+    }
+
+    private Path write(String contents) throws IOException {
+        Path p = tmp.newFile().toPath();
+        Files.write(p, contents.getBytes(StandardCharsets.ISO_8859_1));
+        return p;
+    }
+
+    @Test
+    /** Test that scan sees the same pairs, in order, as Scanner */
+    public void test10Scan() throws IOException {
+        Path p = write("  ab cd\n\tef\r\ngh\n\nij kl");
+        StringBuilder sb = new StringBuilder();
+        KeyValueLoader.scan(p, (k, v) -> sb.append(k).append('=').append(v).append(';'));
+        assertEquals("ab=cd;ef=gh;ij=kl;", sb.toString());
+    }
+
+    @Test
+    /** Test that a pair split across lines loads with one thread, and that
+     *  with more it is reported when it spans a split point instead of
+     *  pairing the wrong tokens */
+    public void test25PairAcrossLines() throws IOException {
+        // two threads split just after the second "a", a key
+        Path p = write("a\nb\na\nb\n");
+        PackedKeyTable<String> t = KeyValueLoader.load(p);
+        assertEquals(1, t.getSize());
+        assertEquals("b", t.get("a"));
+        try (FileChannel ch = FileChannel.open(p)) {
+            assertArrayEquals(new long[] {0, 6, 8}, KeyValueLoader.split(ch, 2));
+        }
+        try {
+            KeyValueLoader.load(p, 2);
+            fail("Didn't throw an exception");
+        } catch (IOException e) {
+            // This is supposed to happen
+        }
+    }
+
+    @Test
+    /** Test that a key without a value is reported */
+    public void test20MissingValue() throws IOException {
+        try {
+            KeyValueLoader.load(write("ab cd\nef\n"));
+            fail("Didn't throw an exception");
+        } catch (IOException e) {
+            // This is supposed to happen
+        }
+    }
+
+    @Test
+    /** Test that load matches Scanner on P2TestInput.txt */
+    public void test30Load() throws IOException {
+        File f = new File("P2TestInput.txt");
+        HashMap<String,String> truth = scannerLoad(f);
+        check("single-threaded load", truth, KeyValueLoader.load(f.toPath()));
+        for (int threads = 2; threads <= 8; threads *= 2) {
+            check("load with " + threads + " threads", truth,
+                    KeyValueLoader.load(f.toPath(), threads));
+        }
+    }
+
+    @Test
+    /** Test that the last value of a repeated key wins across threads */
+    public void test40Duplicates() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            sb.append("k").append(i % 10).append(' ').append(i).append('\n');
+        }
+        Path p = write(sb.toString());
+        HashMap<String,String> truth = scannerLoad(p.toFile());
+        check("repeated keys", truth, KeyValueLoader.load(p, 7));
+    }
+
+    @Test
+    /** Test split on files with fewer lines than threads */
+    public void test50Split() throws IOException {
+        assertEquals(0, KeyValueLoader.load(write(""), 4).getSize());
+        PackedKeyTable<String> t = KeyValueLoader.load(write("a b"), 4);
+        assertEquals("b", t.get("a"));
+        t = KeyValueLoader.load(Paths.get("P2TestInput.txt"), 2000);
+        assertEquals(scannerLoad(new File("P2TestInput.txt")).size(), t.getSize());
+    }
+
+    @Test
+    /** Test that pairs split across lines survive window boundaries: every
+     *  window size, down to a few bytes, sees the same pairs as Scanner */
+    public void test60WindowBoundaries() throws IOException {
+        Path p = write("alpha\nbeta gamma\n\ndelta epsilon zeta\neta\ntheta\n");
+        for (int window = 14; window <= 64; window++) {
+            StringBuilder sb = new StringBuilder();
+            try (FileChannel ch = FileChannel.open(p)) {
+                KeyValueLoader.scan(ch, 0, ch.size(), window,
+                        (k, v) -> sb.append(k).append('=').append(v).append(';'));
+            }
+            assertEquals("window " + window,
+                    "alpha=beta;gamma=delta;epsilon=zeta;eta=theta;", sb.toString());
+        }
+        try (FileChannel ch = FileChannel.open(p)) {
+            KeyValueLoader.scan(ch, 0, ch.size(), 8, (k, v) -> { });
+            fail("Didn't throw an exception");
+        } catch (IOException e) {
+            // This is supposed to happen: "epsilon zeta\n" does not fit
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package heap;
+
+import static org.junit.Assert.*;
+import org.junit.FixMethodOrder;
+
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class MinMaxHeapTest {
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(5); // 5sec timeout
+
+    /* Check the class invariants of h */
+    static void assertInvariants(MinMaxHeap<Integer, Integer> h) {
+        assertEquals(h.c.size(), h.map.getSize());
+        for (int i = 0; i < h.c.size(); i++) {
+            assertEquals(Integer.valueOf(i), h.map.get(h.c.get(i).value));
+            int level = 31 - Integer.numberOfLeadingZeros(i + 1);
+            int p = h.c.get(i).priority;
+            // compare with every ancestor on a different level
+            for (int a = (i - 1) / 2, l = level - 1; i > 0 && a >= 0; a = (a - 1) / 2, l--) {
+                int q = h.c.get(a).priority;
+                if (l % 2 == 0) assertTrue(q <= p);
+                else assertTrue(q >= p);
+                if (a == 0) break;
+            }
+        }
+    }
+
+    @Test
+    /** Test both ends on a few values */
+    public void test10Basics() {
+        MinMaxHeap<String, Integer> h = new MinMaxHeap<String, Integer>();
+        try {
+            h.peekMax();
+            fail("Didn't throw an exception");
+        } catch (NoSuchElementException e) {
+            // This is supposed to happen
+        }
+        h.add("c", 3);
+        assertEquals("c", h.peekMin());
+        assertEquals("c", h.peekMax());
+        h.add("a", 1);
+        h.add("e", 5);
+        h.add("b", 2);
+        h.add("d", 4);
+        assertEquals(5, h.size());
+        assertEquals("a", h.peekMin());
+        assertEquals("e", h.peekMax());
+        assertEquals(Integer.valueOf(5), h.peekMaxPriority());
+        try {
+            h.add("a", 9);
+            fail("Didn't throw an exception");
+        } catch (IllegalArgumentException e) {
+            // This is supposed to happen
+        }
+        assertEquals("e", h.pollMax());
+        assertEquals("d", h.pollMax());
+        assertEquals("a", h.pollMin());
+        h.changePriority("b", 7);
+        assertEquals("b", h.peekMax());
+        assertEquals("c", h.peekMin());
+        assertEquals(Integer.valueOf(3), h.remove("c"));
+        assertFalse(h.contains("c"));
+        assertEquals("b", h.pollMin());
+        assertEquals(0, h.size());
+    }
+
+    @Test
+    /** Test random operations against a sorted set */
+    public void test20Random() {
+        Random rand = new Random(46);
+        MinMaxHeap<Integer, Integer> h = new MinMaxHeap<Integer, Integer>();
+        // (priority, value) pairs encoded in a long
+        TreeSet<Long> expected = new TreeSet<Long>();
+        TreeMap<Integer, Integer> prio = new TreeMap<Integer, Integer>();
+        for (int step = 0; step < 20000; step++) {
+            int op = rand.nextInt(6);
+            if (op < 2 || prio.isEmpty()) {
+                int v = rand.nextInt(1000);
+                if (prio.containsKey(v)) continue;
+                int p = rand.nextInt(200);
+                h.add(v, p);
+                prio.put(v, p);
+                expected.add((long) p << 32 | v);
+            } else if (op == 2) {
+                // with ties, any value of the smallest priority may come out
+                long first = expected.first() >>> 32;
+                int v = h.pollMin();
+                assertEquals(first, (long) prio.get(v));
+                assertTrue(expected.remove((long) prio.remove(v) << 32 | v));
+            } else if (op == 3) {
+                long last = expected.last() >>> 32;
+                int v = h.pollMax();
+                assertEquals(last, (long) prio.get(v));
+                assertTrue(expected.remove((long) prio.remove(v) << 32 | v));
+            } else {
+                Integer k = prio.ceilingKey(rand.nextInt(1000));
+                int v = k == null ? prio.firstKey() : k;
+                expected.remove((long) prio.get(v) << 32 | v);
+                if (op == 4) {
+                    int p = rand.nextInt(200);
+                    h.changePriority(v, p);
+                    prio.put(v, p);
+                    expected.add((long) p << 32 | v);
+                } else {
+                    assertEquals(prio.remove(v), h.remove(v));
+                }
+            }
+            assertEquals(prio.size(), h.size());
+            if (step % 10 == 0) assertInvariants(h);
+            if (h.size() > 0) {
+                assertEquals(expected.first() >>> 32, (long) h.peekMinPriority());
+                assertEquals(expected.last() >>> 32, (long) h.peekMaxPriority());
+            }
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package heap;
+
+import static org.junit.Assert.*;
+import org.junit.FixMethodOrder;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.NoSuchElementException;
+
+import org.junit.Rule;
+import org.junit.rules.TemporaryFolder;
+import org.junit.rules.Timeout;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class OffHeapAListTest {
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(5); // 5sec timeout
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    /** A two-field record, to test codecs for small structs */
+    static final class Point {
+        final int x;
+        final double y;
+
+        Point(int x, double y) {
+            this.x = x;
+            this.y = y;
+        }
+    }
+
+    static final RecordCodec<Point> POINT = new RecordCodec<Point>() {
+        public int width() {
+            return 12;
+        }
+
+        public void write(ByteBuffer buf, int offset, Point p) {
+            buf.putInt(offset, p.x);
+            buf.putDouble(offset + 4, p.y);
+        }
+
+        public Point read(ByteBuffer buf, int offset) {
+            return new Point(buf.getInt(offset), buf.getDouble(offset + 4));
+        }
+    };
+
+    @Test
+    /** Test append, get, put and pop across chunks in direct memory */
+    public void test10Direct() throws IOException {
+        OffHeapAList<Long> al = new OffHeapAList<Long>(RecordCodec.LONG, 4);
+        assertEquals(0, al.getCap());
+        for (long i = 0; i < 100; i++) al.append(i << 40);
+        assertEquals(100, al.size());
+        assertEquals(112, al.getCap());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(Long.valueOf((long) i << 40), al.get(i));
+            al.put(i, (long) -i);
+        }
+        for (int i = 99; i >= 0; i--) {
+            assertEquals(Long.valueOf(-i), al.pop());
+        }
+        try {
+            al.pop();
+            fail("Didn't throw an exception");
+        } catch (NoSuchElementException e) {
+            // This is supposed to happen
+        }
+        try {
+            al.get(0);
+            fail("Didn't throw an exception");
+        } catch (ArrayIndexOutOfBoundsException e) {
+            // This is supposed to happen
+        }
+
+        al.close();
+        try {
+            al.append(1L);
+            fail("Didn't throw an exception");
+        } catch (IllegalStateException e) {
+            // This is supposed to happen
+        }
+    }
+
+    @Test
+    /** Test a struct codec */
+    public void test20Struct() throws IOException {
+        OffHeapAList<Point> al = new OffHeapAList<Point>(POINT, 3);
+        for (int i = 0; i < 20; i++) al.append(new Point(i, i / 4.0));
+        Point p = al.get(13);
+        assertEquals(13, p.x);
+        assertEquals(3.25, p.y, 0);
+        al.close();
+    }
+
+    @Test
+    /** Test that a mapped list persists and reopens */
+    public void test30Mapped() throws IOException {
+        Path f = tmp.newFile().toPath();
+        f.toFile().delete();
+        OffHeapAList<Integer> al = OffHeapAList.mapped(f, RecordCodec.INT, 5);
+        for (int i = 0; i < 1000; i++) al.append(i * 3);
+        al.pop();
+        al.close();
+
+        al = OffHeapAList.mapped(f, RecordCodec.INT, 5);
+        assertEquals(999, al.size());
+        for (int i = 0; i < 999; i++) {
+            assertEquals(Integer.valueOf(i * 3), al.get(i));
+        }
+        al.append(7);
+        al.close();
+
+        al = OffHeapAList.mapped(f, RecordCodec.INT, 8);
+        assertEquals(1000, al.size());
+        assertEquals(Integer.valueOf(7), al.get(999));
+        al.close();
+
+        try {
+            OffHeapAList.mapped(f, RecordCodec.LONG);
+            fail("Didn't throw an exception");
+        } catch (IOException e) {
+            // This is supposed to happen: wrong record width
+        }
+    }
+
+    @Test
+    /** Test that a header whose size the file cannot hold is rejected, and
+     *  that the file can be reopened once the header is repaired */
+    public void test40CorruptSize() throws IOException {
+        Path f = tmp.newFile().toPath();
+        f.toFile().delete();
+        OffHeapAList<Integer> al = OffHeapAList.mapped(f, RecordCodec.INT, 5);
+        for (int i = 0; i < 100; i++) al.append(i);
+        al.close();
+
+        for (long bad : new long[] {-1, 1L << 40, 1L << 30}) {
+            writeSize(f, bad);
+            try {
+                OffHeapAList.mapped(f, RecordCodec.INT, 5);
+                fail("Didn't throw an exception");
+            } catch (IOException e) {
+                // This is supposed to happen
+            }
+        }
+        writeSize(f, 100);
+        al = OffHeapAList.mapped(f, RecordCodec.INT, 5);
+        assertEquals(Integer.valueOf(99), al.get(99));
+        al.close();
+    }
+
+    /* Overwrite the size in the little-endian header of a mapped list */
+    private static void writeSize(Path f, long n) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(f.toFile(), "rw")) {
+            raf.seek(8);
+            raf.writeLong(Long.reverseBytes(n));
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package heap;
+
+import static org.junit.Assert.*;
+import org.junit.FixMethodOrder;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Scanner;
+
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class PackedKeyTableTest {
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(10); // 10sec timeout
+
+    @Test
+    /** Test put, get and overwrite with short packed keys */
+    public void test10PutGet() {
+        PackedKeyTable<Integer> t = new PackedKeyTable<Integer>();
+        assertNull(t.put("abc", 1));
+        assertNull(t.put("", 2));
+        assertNull(t.put("abcdefgh", 3));
+        assertEquals(Integer.valueOf(1), t.put("abc", 4));
+
+        assertEquals(3, t.getSize());
+        assertEquals(Integer.valueOf(4), t.get("abc"));
+        assertEquals(Integer.valueOf(2), t.get(""));
+        assertEquals(Integer.valueOf(3), t.get(new StringBuilder("abcdefgh")));
+        assertNull(t.get("abcd"));
+        assertNull(t.get("ab"));
+        assertEquals(0, t.getArenaSize());
+    }
+
+    @Test
+    /** Test keys that are too long or non-ASCII, which go to the arena */
+    public void test20ArenaKeys() {
+        PackedKeyTable<Integer> t = new PackedKeyTable<Integer>();
+        t.put("abcdefghi", 1);
+        t.put("abcdefghj", 2);
+        t.put("caf\u00e9", 3);
+
+        assertEquals(Integer.valueOf(1), t.get("abcdefghi"));
+        assertEquals(Integer.valueOf(2), t.get("abcdefghj"));
+        assertEquals(Integer.valueOf(3), t.get("caf\u00e9"));
+        assertNull(t.get("abcdefgh"));
+        assertEquals(22, t.getArenaSize());
+
+        try {
+            t.get("\u0100");
+            fail("Didn't throw an exception");
+        } catch (IllegalArgumentException e) {
+            // This is supposed to happen
+        }
+    }
+
+    @Test
+    /** Test that the longest key is stored and found, and that a longer one
+     *  is rejected instead of corrupting its arena reference */
+    public void test25KeyLengthLimit() {
+        PackedKeyTable<Integer> t = new PackedKeyTable<Integer>();
+        byte[] big = new byte[PackedKeyTable.MAX_KEY_LENGTH + 1];
+        Arrays.fill(big, (byte) 'k');
+        t.put("a", 0);
+        assertNull(t.put(big, 1, PackedKeyTable.MAX_KEY_LENGTH, 1));
+        assertEquals(Integer.valueOf(1), t.get(big, 0, PackedKeyTable.MAX_KEY_LENGTH));
+        int[] lengths = new int[1];
+        t.forEach((b, off, len, v) -> {
+            if (v == 1) lengths[0] = len;
+        });
+        assertEquals(PackedKeyTable.MAX_KEY_LENGTH, lengths[0]);
+        try {
+            t.put(big, 0, big.length, 2);
+            fail("Didn't throw an exception");
+        } catch (IllegalArgumentException e) {
+            // This is supposed to happen
+        }
+        assertEquals(2, t.getSize());
+        assertFalse(t.containsKey(big, 0, big.length));
+        assertEquals(Integer.valueOf(0), t.get("a"));
+    }
+
+    @Test
+    /** Test that byte[] lookups see the same keys as CharSequence ones */
+    public void test30Bytes() {
+        PackedKeyTable<Integer> t = new PackedKeyTable<Integer>();
+        t.put("ivyp", 1);
+        t.put("a-much-longer-key", 2);
+
+        byte[] line = "xx ivyp a-much-longer-key".getBytes(StandardCharsets.US_ASCII);
+        assertEquals(Integer.valueOf(1), t.get(line, 3, 4));
+        assertEquals(Integer.valueOf(2), t.get(line, 8, 17));
+        assertTrue(t.containsKey(line, 3, 4));
+        assertFalse(t.containsKey(line, 3, 3));
+
+        assertEquals(Integer.valueOf(1), t.remove(line, 3, 4));
+        assertFalse(t.containsKey("ivyp"));
+        assertEquals(1, t.getSize());
+    }
+
+    @Test
+    /** Test growth and removal against HashMap using P2TestInput.txt */
+    public void test40Strings() throws FileNotFoundException {
+        HashMap<String,String> truth = new HashMap<String,String>();
+        PackedKeyTable<String> t = new PackedKeyTable<String>();
+
+        Scanner sc = new Scanner(new File("P2TestInput.txt"));
+        int n = 0;
+        while (sc.hasNext()) {
+            String k = sc.next();
+            String v = sc.next();
+            assertEquals(truth.put(k, v), t.put(k, v));
+            if (n++ % 3 == 0) {
+                assertEquals(truth.remove(k), t.remove(k));
+            }
+        }
+        sc.close();
+
+        assertEquals(truth.size(), t.getSize());
+        assertTrue(t.getCapacity() > 17);
+        for (Map.Entry<String,String> e : truth.entrySet()) {
+            assertEquals(e.getValue(), t.get(e.getKey()));
+        }
+    }
+}
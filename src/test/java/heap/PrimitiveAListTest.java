@@ -0,0 +1,136 @@
+package heap;
+
+import static org.junit.Assert.*;
+import org.junit.FixMethodOrder;
+
+import java.util.NoSuchElementException;
+
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class PrimitiveAListTest {
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(3); // 3sec timeout
+
+    @Test
+    /** Test constructors and resize, including growth past twice the
+     * current capacity. */
+    public void test10Resize() {
+        IntAList al = new IntAList();
+        assertEquals(0, al.size());
+        assertEquals(8, al.getCap());
+
+        al = new IntAList(16);
+        al.resize(4);
+        assertEquals(4, al.size());
+        assertEquals(16, al.getCap());
+
+        al.resize(18);
+        assertEquals(18, al.size());
+        assertEquals(32, al.getCap());
+
+        al.resize(100);
+        assertEquals(128, al.getCap());
+        al.put(99, 5);
+        assertEquals(5, al.get(99));
+
+        al.resize(10);
+        al.resize(100);
+        assertEquals("elements exposed by resize should be 0", 0, al.get(99));
+    }
+
+    @Test
+    /** Test append, get, put and pop for each element type */
+    public void test20AppendPop() {
+        IntAList il = new IntAList(1);
+        LongAList ll = new LongAList(1);
+        DoubleAList dl = new DoubleAList(1);
+        for (int i = 0; i < 16; i++) {
+            il.append(i);
+            ll.append(i * 10000000000L);
+            dl.append(i / 2.0);
+            assertEquals(i + 1, il.size());
+            assertEquals(i, il.get(i));
+            assertEquals(i * 10000000000L, ll.get(i));
+            assertEquals(i / 2.0, dl.get(i), 0);
+        }
+        assertEquals(16, il.getCap());
+
+        il.put(3, -3);
+        assertEquals(-3, il.get(3));
+        for (int i = 15; i >= 0; i--) {
+            assertEquals(i == 3 ? -3 : i, il.pop());
+            assertEquals(i * 10000000000L, ll.pop());
+            assertEquals(i / 2.0, dl.pop(), 0);
+        }
+        assertEquals(16, il.getCap());
+
+        try {
+            il.pop();
+            fail("Didn't throw an exception");
+        } catch (NoSuchElementException e) {
+            // This is supposed to happen
+        }
+        try {
+            ll.get(0);
+            fail("Didn't throw an exception");
+        } catch (ArrayIndexOutOfBoundsException e) {
+            // This is supposed to happen
+        }
+    }
+
+    @Test
+    /** Test addAll and toArray */
+    public void test30Bulk() {
+        IntAList il = new IntAList(2);
+        il.append(1);
+        il.addAll(new int[]{2, 3, 4, 5, 6});
+        assertArrayEquals(new int[]{1, 2, 3, 4, 5, 6}, il.toArray());
+        assertEquals(8, il.getCap());
+
+        LongAList ll = new LongAList(0);
+        ll.addAll(new long[]{7, 8});
+        ll.append(9);
+        assertArrayEquals(new long[]{7, 8, 9}, ll.toArray());
+
+        DoubleAList dl = new DoubleAList();
+        dl.addAll(new double[0]);
+        assertEquals(0, dl.toArray().length);
+        dl.addAll(new double[]{0.5, 1.5});
+        assertArrayEquals(new double[]{0.5, 1.5}, dl.toArray(), 0);
+    }
+
+    @Test
+    /** Test that growing past the largest array throws OutOfMemoryError
+     *  instead of leaving the array smaller than the size or overflowing */
+    public void test40Overflow() {
+        IntAList il = new IntAList(8);
+        LongAList ll = new LongAList(8);
+        DoubleAList dl = new DoubleAList(8);
+        // pretend, without the memory
+        il.size = ll.size = dl.size = GrowthPolicy.MAX_CAPACITY - 5;
+        Runnable[] grows = {
+            () -> il.addAll(new int[10]),
+            () -> ll.addAll(new long[10]),
+            () -> dl.addAll(new double[10]),
+            () -> il.resize(GrowthPolicy.MAX_CAPACITY + 1),
+            () -> ll.resize(Integer.MAX_VALUE),
+            () -> dl.resize(GrowthPolicy.MAX_CAPACITY + 1),
+        };
+        for (Runnable grow : grows) {
+            try {
+                grow.run();
+                fail("Didn't throw an exception");
+            } catch (OutOfMemoryError e) {
+                // This is supposed to happen
+            }
+        }
+        assertEquals(8, il.getCap());
+        assertEquals(8, ll.getCap());
+        assertEquals(8, dl.getCap());
+    }
+}
@@ -0,0 +1,152 @@
+package heap;
+
+import static org.junit.Assert.*;
+import org.junit.FixMethodOrder;
+
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class RadixHeapTest {
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(5); // 5sec timeout
+
+    @Test
+    /** Test the Heap contract on a few values */
+    public void test10Basics() {
+        RadixHeap<String> h = new RadixHeap<String>();
+        assertEquals(0, h.size());
+        try {
+            h.poll();
+            fail("Didn't throw an exception");
+        } catch (NoSuchElementException e) {
+            // This is supposed to happen
+        }
+        h.add("c", 30);
+        h.add("a", 10);
+        h.add("b", 20);
+        h.add("z", 1L << 40);
+        assertTrue(h.contains("b"));
+        assertEquals("a", h.peek());
+        assertEquals(10, h.peekPriority());
+        try {
+            h.add("a", 50);
+            fail("Didn't throw an exception");
+        } catch (IllegalArgumentException e) {
+            // This is supposed to happen
+        }
+        assertEquals("a", h.poll());
+        assertEquals(10, h.lastPolled());
+        try {
+            h.add("d", 9);  // below the last polled priority
+            fail("Didn't throw an exception");
+        } catch (IllegalArgumentException e) {
+            // This is supposed to happen
+        }
+        h.changePriority("c", 15);
+        try {
+            h.changePriority("b", 25);  // increases are not allowed
+            fail("Didn't throw an exception");
+        } catch (IllegalArgumentException e) {
+            // This is supposed to happen
+        }
+        assertEquals(20, h.remove("b"));
+        assertFalse(h.contains("b"));
+        assertEquals("c", h.poll());
+        assertEquals("z", h.poll());
+        assertEquals(1L << 40, h.lastPolled());
+        assertEquals(0, h.size());
+    }
+
+    @Test
+    /** Test that peek does not raise the floor for add and changePriority:
+     *  only poll does */
+    public void test15PeekKeepsFloor() {
+        RadixHeap<String> h = new RadixHeap<String>();
+        h.add("a", 10);
+        assertEquals("a", h.peek());
+        assertEquals(10, h.peekPriority());
+        assertEquals(0, h.lastPolled());
+        h.add("b", 5);
+        assertEquals("b", h.peek());
+        h.add("c", 40);
+        h.add("d", 70);
+        assertEquals(5, h.peekPriority());
+        h.changePriority("d", 1);
+        assertEquals("d", h.peek());
+        assertEquals(1, h.remove("d"));
+        assertEquals("b", h.peek());
+        assertEquals("b", h.poll());
+        assertEquals(5, h.lastPolled());
+        assertEquals(10, h.peekPriority());
+        h.changePriority("c", 7);
+        assertEquals("c", h.poll());
+        assertEquals("a", h.poll());
+        assertEquals(0, h.size());
+    }
+
+    @Test
+    /** Test a random monotone workload against PriorityQueue */
+    public void test20Random() {
+        Random rand = new Random(45);
+        RadixHeap<Integer> h = new RadixHeap<Integer>();
+        PriorityQueue<long[]> q = new PriorityQueue<long[]>(
+                (a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+        long[] prio = new long[20000];
+        int next = 0;
+        for (int step = 0; step < 100000; step++) {
+            int op = rand.nextInt(10);
+            if (op < 5 && next < prio.length) {
+                long p = h.lastPolled() + rand.nextInt(1000);
+                prio[next] = p;
+                h.add(next, p);
+                q.add(new long[] {p, next});
+                next++;
+            } else if (op < 7 && h.size() > 0) {
+                int v = rand.nextInt(next);
+                if (h.contains(v)) {
+                    long p = h.lastPolled() + rand.nextInt((int) (prio[v] - h.lastPolled() + 1));
+                    q.removeIf(e -> e[1] == v);
+                    prio[v] = p;
+                    h.changePriority(v, p);
+                    q.add(new long[] {p, v});
+                }
+            } else if (h.size() > 0) {
+                long p = h.peekPriority();
+                int v = h.poll();
+                assertEquals(q.peek()[0], p);
+                assertEquals(prio[v], p);
+                assertTrue(q.removeIf(e -> e[1] == v));
+            }
+            assertEquals(q.size(), h.size());
+        }
+    }
+
+    @Test
+    /** Test Dijkstra on a RadixHeap against Dijkstra on Heap */
+    public void test30ShortestPaths() {
+        Random rand = new Random(46);
+        for (int t = 0; t < 30; t++) {
+            int n = 1 + rand.nextInt(300);
+            CsrGraph g = ShortestPathsTest.random(n, rand.nextInt(5 * n), rand);
+            int s = rand.nextInt(n);
+            ShortestPaths.Result a = ShortestPaths.dijkstra(g, s);
+            ShortestPaths.Result b = ShortestPaths.dijkstraRadix(g, s);
+            for (int v = 0; v < n; v++) assertEquals(a.distance(v), b.distance(v), 0);
+        }
+        CsrGraph g = CsrGraph.fromEdges(2, new int[] {0}, new int[] {1}, new double[] {0.5});
+        try {
+            ShortestPaths.dijkstraRadix(g, 0);
+            fail("Didn't throw an exception");
+        } catch (IllegalArgumentException e) {
+            // This is supposed to happen
+        }
+    }
+}
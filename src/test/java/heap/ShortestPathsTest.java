@@ -0,0 +1,175 @@
+package heap;
+
+import static org.junit.Assert.*;
+import org.junit.FixMethodOrder;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class ShortestPathsTest {
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(5); // 5sec timeout
+
+    /* Return a random graph on n nodes with m edges of weight 0..9 */
+    static CsrGraph random(int n, int m, Random rand) {
+        int[] from = new int[m];
+        int[] to = new int[m];
+        double[] w = new double[m];
+        for (int i = 0; i < m; i++) {
+            from[i] = rand.nextInt(n);
+            to[i] = rand.nextInt(n);
+            w[i] = rand.nextInt(10);
+        }
+        return CsrGraph.fromEdges(n, from, to, w);
+    }
+
+    /* Return the distances from source computed by Bellman-Ford */
+    static double[] bellmanFord(CsrGraph g, int source) {
+        double[] d = new double[g.nodeCount()];
+        Arrays.fill(d, Double.POSITIVE_INFINITY);
+        d[source] = 0;
+        for (boolean changed = true; changed; ) {
+            changed = false;
+            for (int u = 0; u < g.nodeCount(); u++) {
+                for (int e = g.firstEdge(u); e < g.endEdge(u); e++) {
+                    if (d[u] + g.weight(e) < d[g.target(e)]) {
+                        d[g.target(e)] = d[u] + g.weight(e);
+                        changed = true;
+                    }
+                }
+            }
+        }
+        return d;
+    }
+
+    /* Check that p is a path from source in g whose weight is d */
+    static void assertPath(CsrGraph g, int source, int[] p, double d) {
+        assertEquals(source, p[0]);
+        double sum = 0;
+        for (int i = 0; i + 1 < p.length; i++) {
+            double best = Double.POSITIVE_INFINITY;
+            for (int e = g.firstEdge(p[i]); e < g.endEdge(p[i]); e++) {
+                if (g.target(e) == p[i + 1]) best = Math.min(best, g.weight(e));
+            }
+            sum += best;
+        }
+        assertEquals(d, sum, 0);
+    }
+
+    @Test
+    /** Test the CSR layout and argument checks */
+    public void test10Graph() {
+        CsrGraph g = CsrGraph.fromEdges(4, new int[] {2, 0, 2, 0},
+                new int[] {3, 1, 0, 2}, new double[] {1, 2, 3, 4});
+        assertEquals(4, g.nodeCount());
+        assertEquals(4, g.edgeCount());
+        assertEquals(2, g.endEdge(0) - g.firstEdge(0));
+        assertEquals(0, g.endEdge(1) - g.firstEdge(1));
+        assertEquals(2, g.endEdge(2) - g.firstEdge(2));
+        assertEquals(1, g.target(g.firstEdge(0)));
+        assertEquals(4, g.weight(g.firstEdge(0) + 1), 0);
+        assertEquals(g.edgeCount(), g.endEdge(3));
+
+        try {
+            CsrGraph.fromEdges(2, new int[] {0}, new int[] {1}, new double[] {-1});
+            fail("Didn't throw an exception");
+        } catch (IllegalArgumentException e) {
+            // This is supposed to happen
+        }
+        try {
+            CsrGraph.fromEdges(2, new int[] {0}, new int[] {2}, new double[] {1});
+            fail("Didn't throw an exception");
+        } catch (IllegalArgumentException e) {
+            // This is supposed to happen
+        }
+    }
+
+    @Test
+    /** Test Dijkstra against Bellman-Ford on random graphs */
+    public void test20Dijkstra() {
+        Random rand = new Random(40);
+        for (int t = 0; t < 50; t++) {
+            int n = 1 + rand.nextInt(200);
+            CsrGraph g = random(n, rand.nextInt(4 * n), rand);
+            int s = rand.nextInt(n);
+            double[] expected = bellmanFord(g, s);
+            ShortestPaths.Result r = ShortestPaths.dijkstra(g, s);
+            for (int v = 0; v < n; v++) {
+                assertEquals(expected[v], r.distance(v), 0);
+                if (expected[v] < Double.POSITIVE_INFINITY) {
+                    assertPath(g, s, r.path(v), expected[v]);
+                } else {
+                    assertEquals(0, r.path(v).length);
+                    assertEquals(-1, r.parent(v));
+                }
+            }
+        }
+    }
+
+    @Test
+    /** Test that a targeted search stops early with the right answer */
+    public void test30EarlyExit() {
+        // a path 0 - 1 - ... - 99
+        int n = 100;
+        int[] from = new int[n - 1];
+        int[] to = new int[n - 1];
+        double[] w = new double[n - 1];
+        for (int i = 0; i < n - 1; i++) {
+            from[i] = i;
+            to[i] = i + 1;
+            w[i] = 1;
+        }
+        CsrGraph g = CsrGraph.fromEdges(n, from, to, w);
+        ShortestPaths.Result r = ShortestPaths.dijkstra(g, 0, 10);
+        assertEquals(10, r.distance(10), 0);
+        assertEquals(11, r.settledCount());
+        assertEquals(Double.POSITIVE_INFINITY, r.distance(50), 0);
+        assertEquals(11, r.path(10).length);
+        assertEquals(n, ShortestPaths.dijkstra(g, 0).settledCount());
+    }
+
+    @Test
+    /** Test A* on a grid with the Manhattan heuristic */
+    public void test40AStar() {
+        int side = 60;
+        int n = side * side;
+        Random rand = new Random(41);
+        int[] from = new int[4 * n];
+        int[] to = new int[4 * n];
+        double[] w = new double[4 * n];
+        int m = 0;
+        for (int y = 0; y < side; y++) {
+            for (int x = 0; x < side; x++) {
+                int u = y * side + x;
+                int[] nbr = {x > 0 ? u - 1 : -1, x < side - 1 ? u + 1 : -1,
+                    y > 0 ? u - side : -1, y < side - 1 ? u + side : -1};
+                for (int v : nbr) {
+                    if (v < 0) continue;
+                    from[m] = u;
+                    to[m] = v;
+                    w[m++] = 1 + rand.nextInt(3);
+                }
+            }
+        }
+        CsrGraph g = CsrGraph.fromEdges(n, Arrays.copyOf(from, m),
+                Arrays.copyOf(to, m), Arrays.copyOf(w, m));
+        int s = 0;
+        for (int t = 0; t < 20; t++) {
+            final int target = rand.nextInt(n);
+            ShortestPaths.Heuristic h = v -> Math.abs(v % side - target % side)
+                    + Math.abs(v / side - target / side);
+            ShortestPaths.Result a = ShortestPaths.aStar(g, s, target, h);
+            ShortestPaths.Result d = ShortestPaths.dijkstra(g, s, target);
+            assertEquals(d.distance(target), a.distance(target), 0);
+            assertPath(g, s, a.path(target), a.distance(target));
+            assertTrue(a.settledCount() <= d.settledCount());
+        }
+    }
+}
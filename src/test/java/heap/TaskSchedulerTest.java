@@ -0,0 +1,138 @@
+package heap;
+
+import static org.junit.Assert.*;
+import org.junit.FixMethodOrder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class TaskSchedulerTest {
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(10); // 10sec timeout
+
+    @Test
+    /** Test that tasks run in deadline order and not early */
+    public void test10Order() throws InterruptedException {
+        // run tasks on the owner thread so they finish in dispatch order
+        TaskScheduler s = new TaskScheduler(Runnable::run);
+        List<Integer> ran = Collections.synchronizedList(new ArrayList<Integer>());
+        CountDownLatch done = new CountDownLatch(5);
+        long start = System.nanoTime();
+        long[] at = new long[5];
+        int[] delays = {40, 10, 30, 0, 20};
+        for (int i = 0; i < 5; i++) {
+            final int id = i;
+            s.schedule(() -> {
+                at[id] = System.nanoTime() - start;
+                ran.add(id);
+                done.countDown();
+            }, delays[i], TimeUnit.MILLISECONDS);
+        }
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList(3, 1, 4, 2, 0), ran);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(at[i] >= TimeUnit.MILLISECONDS.toNanos(delays[i]));
+        }
+        s.shutdown();
+        assertTrue(s.awaitTermination(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    /** Test cancel and reschedule */
+    public void test20CancelReschedule() throws InterruptedException {
+        TaskScheduler s = new TaskScheduler(Runnable::run);
+        AtomicInteger ran = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(1);
+
+        TaskScheduler.Task a = s.schedule(ran::incrementAndGet, 50, TimeUnit.MILLISECONDS);
+        assertTrue(a.cancel());
+        assertFalse(a.cancel());
+        assertTrue(a.isCancelled());
+        assertFalse(a.reschedule(0, TimeUnit.MILLISECONDS));
+
+        // b is moved from far in the future to now
+        TaskScheduler.Task b = s.schedule(done::countDown, 1, TimeUnit.DAYS);
+        assertTrue(b.reschedule(10, TimeUnit.MILLISECONDS));
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertTrue(b.isDispatched());
+        assertFalse(b.cancel());
+
+        // c is moved from now to far in the future
+        TaskScheduler.Task c = s.schedule(ran::incrementAndGet, 30, TimeUnit.MILLISECONDS);
+        assertTrue(c.reschedule(Long.MAX_VALUE, TimeUnit.DAYS));
+        Thread.sleep(200);
+        assertEquals(0, ran.get());
+        assertFalse(c.isDispatched());
+
+        s.shutdown();
+        assertTrue(s.awaitTermination(1, TimeUnit.SECONDS));
+        try {
+            s.schedule(ran::incrementAndGet, 0, TimeUnit.MILLISECONDS);
+            fail("Didn't throw an exception");
+        } catch (RejectedExecutionException e) {
+            // This is supposed to happen
+        }
+    }
+
+    @Test
+    /** Test many tasks scheduled and cancelled from several threads */
+    public void test30Concurrent() throws InterruptedException {
+        TaskScheduler s = new TaskScheduler();
+        int perThread = 5000;
+        AtomicInteger ran = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(4 * perThread / 2);
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    TaskScheduler.Task task = s.schedule(() -> {
+                        ran.incrementAndGet();
+                        done.countDown();
+                    }, i % 50, TimeUnit.MILLISECONDS);
+                    if (i % 2 == 1) task.cancel();
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread t : threads) t.join();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        Thread.sleep(100);
+        // a cancel can lose the race with a task due at once
+        assertTrue(ran.get() >= 4 * perThread / 2);
+        assertTrue(ran.get() <= 4 * perThread);
+        s.shutdown();
+    }
+
+    @Test
+    /** Test that deadlines are ordered across the wrap of nanoTime, and
+     *  that delays are cut so that wrapped deadlines stay comparable */
+    public void test40DeadlineWrap() {
+        TaskScheduler.Deadline before = new TaskScheduler.Deadline(Long.MAX_VALUE - 5);
+        TaskScheduler.Deadline after = new TaskScheduler.Deadline(Long.MIN_VALUE + 5);
+        assertTrue(before.compareTo(after) < 0);
+        assertTrue(after.compareTo(before) > 0);
+        assertEquals(0, after.compareTo(new TaskScheduler.Deadline(Long.MIN_VALUE + 5)));
+
+        Heap<String, TaskScheduler.Deadline> h = new Heap<String, TaskScheduler.Deadline>();
+        long now = Long.MAX_VALUE - 1000;
+        h.add("latest", new TaskScheduler.Deadline(now + TaskScheduler.MAX_DELAY));
+        h.add("wrapped", new TaskScheduler.Deadline(now + 2000));
+        h.add("first", new TaskScheduler.Deadline(now));
+        assertEquals("first", h.poll());
+        assertEquals("wrapped", h.poll());
+        assertEquals("latest", h.poll());
+    }
+}
@@ -0,0 +1,119 @@
+package heap;
+
+import static org.junit.Assert.*;
+import org.junit.FixMethodOrder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class TopKTest {
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(5); // 5sec timeout
+
+    @Test
+    /** Test offer, threshold and toList on a small selector */
+    public void test10Offer() {
+        TopK<String, Integer> t = new TopK<String, Integer>(3);
+        assertNull(t.threshold());
+        assertTrue(t.offer("a", 5));
+        assertTrue(t.offer("b", 1));
+        assertTrue(t.offer("c", 3));
+        assertEquals(Integer.valueOf(1), t.threshold());
+        assertFalse(t.offer("d", 1));   // ties with the threshold lose
+        assertFalse(t.offer("e", 0));
+        assertTrue(t.offer("f", 4));
+        assertEquals(Integer.valueOf(3), t.threshold());
+        assertEquals(Arrays.asList("a", "f", "c"), t.toList());
+        assertEquals(Arrays.asList("a", "f", "c"), t.toList());
+
+        // a kept value keeps its higher priority
+        assertTrue(t.offer("c", 2));
+        assertTrue(t.offer("c", 9));
+        assertEquals(Arrays.asList("c", "a", "f"), t.toList());
+        assertEquals(3, t.size());
+
+        try {
+            new TopK<String, Integer>(0);
+            fail("Didn't throw an exception");
+        } catch (IllegalArgumentException e) {
+            // This is supposed to happen
+        }
+    }
+
+    @Test
+    /** Test against sorting on random input */
+    public void test20Random() {
+        Random rand = new Random(41);
+        for (int t = 0; t < 20; t++) {
+            int n = rand.nextInt(2000);
+            int k = 1 + rand.nextInt(50);
+            List<Integer> values = new ArrayList<Integer>();
+            TopK<Integer, Long> top = new TopK<Integer, Long>(k);
+            for (int i = 0; i < n; i++) {
+                values.add(i);
+                top.offer(i, score(i));
+            }
+            values.sort(Comparator.comparing(TopKTest::score).reversed());
+            assertEquals(values.subList(0, Math.min(n, k)), top.toList());
+        }
+    }
+
+    /* a distinct pseudo-random score for i */
+    static Long score(Integer i) {
+        return (i * 0x9E3779B97F4A7C15L) >>> 20;
+    }
+
+    @Test
+    /** Test merge and the sequential and parallel collectors */
+    public void test30Collector() {
+        int n = 100000;
+        List<Integer> expected = IntStream.range(0, n).boxed()
+                .sorted(Comparator.comparing(TopKTest::score).reversed())
+                .limit(25).collect(Collectors.toList());
+        assertEquals(expected, IntStream.range(0, n).boxed()
+                .collect(TopK.collector(25, TopKTest::score)));
+        assertEquals(expected, IntStream.range(0, n).boxed().parallel()
+                .collect(TopK.collector(25, TopKTest::score)));
+
+        TopK<Integer, Long> a = new TopK<Integer, Long>(25);
+        TopK<Integer, Long> b = new TopK<Integer, Long>(25);
+        for (int i = 0; i < n; i++) (i % 3 == 0 ? a : b).offer(i, score(i));
+        assertEquals(expected, a.merge(b).toList());
+    }
+
+    @Test
+    /** Test Heap.replaceTop and peekPriority */
+    public void test40ReplaceTop() {
+        Heap<String, Integer> h = new Heap<String, Integer>();
+        h.add("a", 1);
+        h.add("b", 2);
+        h.add("c", 3);
+        assertEquals(Integer.valueOf(1), h.peekPriority());
+        assertEquals("a", h.replaceTop("d", 4));
+        assertFalse(h.contains("a"));
+        assertEquals("b", h.peek());
+        assertEquals("b", h.replaceTop("b", 5));
+        assertEquals("c", h.peek());
+        try {
+            h.replaceTop("d", 0);
+            fail("Didn't throw an exception");
+        } catch (IllegalArgumentException e) {
+            // This is supposed to happen
+        }
+        assertEquals("c", h.poll());
+        assertEquals("d", h.poll());
+        assertEquals("b", h.poll());
+    }
+}